@@ -127,7 +127,11 @@ class AdvancedNotificationManager {
         }
         
         // WebView 네이티브 알림 권한
-        if (this.platform === 'webview' && window.AndroidBridge) {
+        const bootState = window.__LONELYCARE_BOOT__;
+        if (this.platform === 'webview' && bootState && typeof bootState.notificationPermission === 'boolean') {
+            // 네이티브 시작 상태 스냅샷에 이미 있음 - 브리지 호출과 결과 대기 생략
+            this.permissions.webViewNotification = bootState.notificationPermission;
+        } else if (this.platform === 'webview' && window.AndroidBridge) {
             try {
                 this.permissions.webViewNotification = await new Promise((resolve) => {
                     window.AndroidBridge.checkNotificationPermission();
@@ -0,0 +1,178 @@
+package com.lonelycare.app;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.util.Log;
+
+/**
+ * 움직임/걸음 갱신을 메모리에 모았다가 정책에 따라 한 번에 디스크로 내보내는 누적기
+ *
+ * 이벤트마다 SharedPreferences 를 쓰면 apply() 가 QueuedWork 에 쌓여
+ * 서비스 종료/onPause 시점에 멈춤이 생기므로, 아래 경우에만 기록한다.
+ *  - 한동안 움직임이 없다가 처음 움직였을 때 (즉시)
+ *  - 마지막 기록 후 FLUSH_INTERVAL 이 지났을 때
+ *  - 서비스 종료/메모리 회수 요청 시 (flush() 직접 호출)
+ *
+ * 따라서 디스크에 남은 마지막 움직임 시각은 최대 FLUSH_INTERVAL 만큼만 뒤처진다.
+ */
+public class ActivityAccumulator {
+    private static final String TAG = "ActivityAccumulator";
+
+    public static final String LAST_MOTION_TIME = "last_motion_time";
+    public static final String STEP_COUNT = "step_count";
+
+    // 디스크 기록 최소 간격 (= 기록된 마지막 움직임 시각의 최대 오차)
+    private static final long FLUSH_INTERVAL = 5 * 60 * 1000; // 5분
+
+    // 걸음 센서 기준값 없음 (새 설치, 기록 삭제 후)
+    private static final float NO_STEP_BASELINE = -1f;
+
+    public interface FlushListener {
+        /**
+         * 디스크 기록 직후 호출 - 외부 알림(브로드캐스트 등)도 이 빈도로만 발생
+         */
+        void onFlushed(long lastMotionTime);
+    }
+
+    private final SharedPreferences prefs;
+    private final Handler handler;
+    private final FlushListener listener;
+
+    private long lastMotionTime;
+    private float stepCount;
+    private long persistedMotionTime;
+    private long lastFlushTime = 0;
+    private boolean dirty = false;
+    private boolean flushScheduled = false;
+
+    private final Runnable scheduledFlush = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (ActivityAccumulator.this) {
+                flushScheduled = false;
+            }
+            flush();
+        }
+    };
+
+    public ActivityAccumulator(SharedPreferences prefs, Handler handler, FlushListener listener) {
+        this.prefs = prefs;
+        this.handler = handler;
+        this.listener = listener;
+        this.lastMotionTime = prefs.getLong(LAST_MOTION_TIME, 0);
+        this.stepCount = prefs.getFloat(STEP_COUNT, NO_STEP_BASELINE);
+        this.persistedMotionTime = lastMotionTime;
+    }
+
+    /**
+     * 움직임 기록
+     */
+    public void recordMotion(long motionTime) {
+        boolean flushNow;
+        synchronized (this) {
+            if (motionTime > lastMotionTime) {
+                // 기록된 시각과 FLUSH_INTERVAL 이상 벌어져 있으면 "휴지 후 첫 움직임"
+                flushNow = motionTime - persistedMotionTime >= FLUSH_INTERVAL;
+                lastMotionTime = motionTime;
+                dirty = true;
+            } else {
+                flushNow = false;
+            }
+            if (!dirty) {
+                return;
+            }
+        }
+
+        if (flushNow) {
+            flush();
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 걸음 센서 누적값 기록 - 증가했으면 움직임으로 간주하고 true 반환
+     */
+    public boolean recordSteps(float totalSteps, long motionTime) {
+        synchronized (this) {
+            if (stepCount < 0) {
+                // 첫 값은 부팅 후 누적 걸음 수 전체 - 기준으로만 삼고 움직임으로 치지 않음
+                stepCount = totalSteps;
+                dirty = true;
+                return false;
+            }
+            if (totalSteps < stepCount) {
+                // 재부팅 후 걸음 센서 누적값이 0부터 다시 시작한 경우 기준만 맞춤
+                stepCount = totalSteps;
+                dirty = true;
+                return false;
+            }
+            if (totalSteps == stepCount) {
+                return false;
+            }
+            stepCount = totalSteps;
+            dirty = true;
+        }
+        recordMotion(motionTime);
+        return true;
+    }
+
+    public synchronized long getLastMotionTime() {
+        return lastMotionTime;
+    }
+
+    /**
+     * 마지막 걸음 센서 누적값 (기준값이 없으면 음수)
+     */
+    public synchronized float getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * 쌓인 변경을 한 번의 edit() 으로 기록
+     */
+    public void flush() {
+        long motionTime;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            motionTime = lastMotionTime;
+            prefs.edit()
+                .putLong(LAST_MOTION_TIME, motionTime)
+                .putFloat(STEP_COUNT, stepCount)
+                .apply();
+            PowerStats.count(PowerStats.DISK + "motion_detection");
+            persistedMotionTime = motionTime;
+            lastFlushTime = System.currentTimeMillis();
+            dirty = false;
+        }
+
+        Log.d(TAG, "활동 기록 저장: " + motionTime);
+        if (listener != null) {
+            listener.onFlushed(motionTime);
+        }
+    }
+
+    /**
+     * 종료 시 예약된 기록을 취소 (호출 측에서 flush() 후 사용)
+     */
+    public void cancelScheduledFlush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        handler.removeCallbacks(scheduledFlush);
+    }
+
+    private void scheduleFlush() {
+        long delay;
+        synchronized (this) {
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+            delay = Math.max(0, lastFlushTime + FLUSH_INTERVAL - System.currentTimeMillis());
+        }
+        handler.postDelayed(scheduledFlush, delay);
+    }
+}
@@ -0,0 +1,384 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 분 단위 활동 타임라인 (기기 내 저장)
+ *
+ * 하루(UTC 기준)마다 고정 크기 파일 하나를 메모리 매핑해서 쓴다.
+ *  - 헤더 16바이트: magic(4) + version(2) + recordSize(2) + epochDay(8)
+ *  - 레코드 1440개(하루의 분) x 8바이트:
+ *    energy float(4, 분 내 최대 에너지) + steps short(2, 걸음 증가량)
+ *    + screenOn byte(1, 화면 켜짐 횟수) + flags byte(1, 움직임/화면 꺼짐)
+ *
+ * 기록은 매핑된 메모리에 바로 쓰므로 시스템 콜이 없고, 프로세스가 죽어도 커널이 파일에 반영한다.
+ * RETENTION_DAYS 보다 오래된 파일은 날짜가 바뀔 때 삭제한다.
+ * 잠금 상태에서 같은 날 파일이 먼저 만들어졌으면 잠금 해제 후 옮겨진 CE 파일을 분 단위로 합친다.
+ */
+public class ActivityTimeline {
+    private static final String TAG = "ActivityTimeline";
+
+    private static final String DIR_NAME = "timeline";
+    private static final int MAGIC = 0x4C43544C; // "LCTL"
+    private static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 8;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int FILE_SIZE = HEADER_SIZE + MINUTES_PER_DAY * RECORD_SIZE;
+
+    private static final int OFFSET_ENERGY = 0;
+    private static final int OFFSET_STEPS = 4;
+    private static final int OFFSET_SCREEN_ON = 6;
+    private static final int OFFSET_FLAGS = 7;
+
+    private static final int FLAG_MOTION = 1;
+    private static final int FLAG_SCREEN_OFF = 2;
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private static final int RETENTION_DAYS = 35;
+
+    // 조회 한 번에 돌려줄 수 있는 최대 구간 수 (WebView 로 넘기는 문자열 크기 제한)
+    private static final int MAX_QUERY_BUCKETS = 2000;
+
+    private static ActivityTimeline instance;
+
+    public static synchronized ActivityTimeline getInstance(Context context) {
+        if (instance == null) {
+            instance = new ActivityTimeline(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final File dir;
+
+    // 배치로 늦게 도착하는 이벤트가 자정을 넘길 수 있어 전날 파일도 열어 둔다
+    private long currentDay = -1;
+    private MappedByteBuffer current;
+    private long previousDay = -1;
+    private MappedByteBuffer previous;
+
+    private ActivityTimeline(Context context) {
+        dir = new File(DirectBootStorage.get(context).getFilesDir(), DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "타임라인 디렉터리 생성 실패: " + dir);
+        }
+        DirectBootStorage.addMigrationListener(this::mergeCredentialCopies);
+        mergeCredentialCopies();
+    }
+
+    /**
+     * 움직임 기록 - 해당 분의 최대 에너지만 유지
+     */
+    public synchronized void recordMotion(long time, float energy) {
+        MappedByteBuffer buffer = writableBuffer(time);
+        if (buffer == null) {
+            return;
+        }
+        int offset = recordOffset(time);
+        if (energy > buffer.getFloat(offset + OFFSET_ENERGY)) {
+            buffer.putFloat(offset + OFFSET_ENERGY, energy);
+        }
+        setFlag(buffer, offset, FLAG_MOTION);
+    }
+
+    /**
+     * 걸음 증가량 기록 (short 범위에서 포화)
+     */
+    public synchronized void recordSteps(long time, int steps) {
+        if (steps <= 0) {
+            return;
+        }
+        MappedByteBuffer buffer = writableBuffer(time);
+        if (buffer == null) {
+            return;
+        }
+        int offset = recordOffset(time);
+        int total = Math.min(Short.MAX_VALUE, buffer.getShort(offset + OFFSET_STEPS) + steps);
+        buffer.putShort(offset + OFFSET_STEPS, (short) total);
+        setFlag(buffer, offset, FLAG_MOTION);
+    }
+
+    /**
+     * 화면 켜짐/꺼짐 기록
+     */
+    public synchronized void recordScreen(long time, boolean on) {
+        MappedByteBuffer buffer = writableBuffer(time);
+        if (buffer == null) {
+            return;
+        }
+        int offset = recordOffset(time);
+        if (on) {
+            int count = buffer.get(offset + OFFSET_SCREEN_ON) & 0xFF;
+            if (count < 0xFF) {
+                buffer.put(offset + OFFSET_SCREEN_ON, (byte) (count + 1));
+            }
+        } else {
+            setFlag(buffer, offset, FLAG_SCREEN_OFF);
+        }
+    }
+
+    /**
+     * 구간별 집계를 압축 JSON 으로 반환
+     * {"from":시작시각,"bucket":분,"a":[움직인 분],"e":[최대 에너지x100],"s":[걸음],"x":[화면 켜짐]}
+     */
+    public synchronized String query(long from, long to, int bucketMinutes) {
+        if (bucketMinutes <= 0) {
+            bucketMinutes = 60;
+        }
+        long bucketMs = bucketMinutes * MINUTE;
+        from = (from / bucketMs) * bucketMs;
+        int buckets = (int) Math.min(MAX_QUERY_BUCKETS, Math.max(0, (to - from + bucketMs - 1) / bucketMs));
+
+        int[] active = new int[buckets];
+        int[] energy = new int[buckets];
+        int[] steps = new int[buckets];
+        int[] screen = new int[buckets];
+
+        long end = from + buckets * bucketMs;
+        for (long day = from / DAY; day * DAY < end; day++) {
+            MappedByteBuffer buffer = readableBuffer(day);
+            if (buffer == null) {
+                continue;
+            }
+            long dayStart = day * DAY;
+            int firstMinute = (int) Math.max(0, (from - dayStart) / MINUTE);
+            int lastMinute = (int) Math.min(MINUTES_PER_DAY, (end - dayStart) / MINUTE);
+
+            for (int minute = firstMinute; minute < lastMinute; minute++) {
+                int offset = HEADER_SIZE + minute * RECORD_SIZE;
+                int flags = buffer.get(offset + OFFSET_FLAGS);
+                int screenOn = buffer.get(offset + OFFSET_SCREEN_ON) & 0xFF;
+                if (flags == 0 && screenOn == 0) {
+                    continue;
+                }
+                int index = (int) ((dayStart + minute * MINUTE - from) / bucketMs);
+                if ((flags & FLAG_MOTION) != 0) {
+                    active[index]++;
+                }
+                energy[index] = Math.max(energy[index], Math.round(buffer.getFloat(offset + OFFSET_ENERGY) * 100));
+                steps[index] += buffer.getShort(offset + OFFSET_STEPS);
+                screen[index] += screenOn;
+            }
+        }
+
+        StringBuilder json = new StringBuilder(64 + buckets * 16);
+        json.append("{\"from\":").append(from).append(",\"bucket\":").append(bucketMinutes);
+        appendArray(json, "a", active);
+        appendArray(json, "e", energy);
+        appendArray(json, "s", steps);
+        appendArray(json, "x", screen);
+        json.append('}');
+        return json.toString();
+    }
+
+    /**
+     * 매핑된 변경을 디스크에 강제로 반영 (전원 차단 대비, 종료 시점에만 사용)
+     */
+    public synchronized void force() {
+        PowerStats.count(PowerStats.DISK + "timeline");
+        if (current != null) {
+            current.force();
+        }
+        if (previous != null) {
+            previous.force();
+        }
+    }
+
+    private static void appendArray(StringBuilder json, String name, int[] values) {
+        json.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(values[i]);
+        }
+        json.append(']');
+    }
+
+    /**
+     * DE 에 같은 날 파일이 있어 따로 복사된 CE 파일을 합치고 삭제
+     * (에너지는 최댓값, 걸음/화면 켜짐은 합, 플래그는 OR)
+     */
+    private synchronized void mergeCredentialCopies() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        String suffix = ".bin" + DirectBootStorage.CREDENTIAL_COPY_SUFFIX;
+        for (File copy : files) {
+            String name = copy.getName();
+            if (!name.startsWith("day-") || !name.endsWith(suffix)) {
+                continue;
+            }
+            long day;
+            try {
+                day = Long.parseLong(name.substring(4, name.length() - suffix.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            MappedByteBuffer source = map(copy, day, false);
+            MappedByteBuffer target = day == currentDay ? current : day == previousDay ? previous : map(day, true);
+            if (source != null && target != null) {
+                for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                    int offset = HEADER_SIZE + minute * RECORD_SIZE;
+                    int flags = source.get(offset + OFFSET_FLAGS);
+                    int screenOn = source.get(offset + OFFSET_SCREEN_ON) & 0xFF;
+                    if (flags == 0 && screenOn == 0) {
+                        continue;
+                    }
+                    float energy = source.getFloat(offset + OFFSET_ENERGY);
+                    if (energy > target.getFloat(offset + OFFSET_ENERGY)) {
+                        target.putFloat(offset + OFFSET_ENERGY, energy);
+                    }
+                    int steps = Math.min(Short.MAX_VALUE,
+                        target.getShort(offset + OFFSET_STEPS) + source.getShort(offset + OFFSET_STEPS));
+                    target.putShort(offset + OFFSET_STEPS, (short) steps);
+                    int screen = Math.min(0xFF, (target.get(offset + OFFSET_SCREEN_ON) & 0xFF) + screenOn);
+                    target.put(offset + OFFSET_SCREEN_ON, (byte) screen);
+                    target.put(offset + OFFSET_FLAGS, (byte) (target.get(offset + OFFSET_FLAGS) | flags));
+                }
+                Log.d(TAG, "잠금 해제 전 타임라인에 CE 기록 합침: " + name);
+            }
+            if (!copy.delete()) {
+                Log.w(TAG, "CE 복사본 삭제 실패: " + name);
+            }
+        }
+    }
+
+    private static int recordOffset(long time) {
+        int minute = (int) ((time % DAY) / MINUTE);
+        return HEADER_SIZE + minute * RECORD_SIZE;
+    }
+
+    private static void setFlag(MappedByteBuffer buffer, int offset, int flag) {
+        byte flags = buffer.get(offset + OFFSET_FLAGS);
+        if ((flags & flag) == 0) {
+            buffer.put(offset + OFFSET_FLAGS, (byte) (flags | flag));
+        }
+    }
+
+    /**
+     * 기록할 날짜의 버퍼 (오늘/어제만 허용, 날짜가 바뀌면 교체 및 오래된 파일 정리)
+     */
+    private MappedByteBuffer writableBuffer(long time) {
+        if (time <= 0) {
+            return null;
+        }
+        long day = time / DAY;
+        if (day > currentDay) {
+            rotate(day);
+        }
+        if (day == currentDay) {
+            return current;
+        }
+        if (day == previousDay) {
+            return previous;
+        }
+        return null;
+    }
+
+    private void rotate(long day) {
+        if (currentDay == day - 1) {
+            previousDay = currentDay;
+            previous = current;
+        } else {
+            previousDay = day - 1;
+            previous = map(previousDay, true);
+        }
+        currentDay = day;
+        current = map(day, true);
+        purgeOlderThan(day - RETENTION_DAYS);
+    }
+
+    private MappedByteBuffer readableBuffer(long day) {
+        if (day == currentDay) {
+            return current;
+        }
+        if (day == previousDay) {
+            return previous;
+        }
+        return map(day, false);
+    }
+
+    private File fileFor(long day) {
+        return new File(dir, "day-" + day + ".bin");
+    }
+
+    private MappedByteBuffer map(long day, boolean write) {
+        return map(fileFor(day), day, write);
+    }
+
+    private MappedByteBuffer map(File file, long day, boolean write) {
+        if (!write && !file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, write ? "rw" : "r")) {
+            boolean fresh = raf.length() != FILE_SIZE;
+            if (fresh && !write) {
+                return null;
+            }
+            if (fresh) {
+                // 새 파일(또는 크기가 맞지 않는 파일)은 0으로 채운 고정 크기로 초기화
+                raf.setLength(0);
+                raf.setLength(FILE_SIZE);
+            }
+            MappedByteBuffer buffer = raf.getChannel().map(
+                write ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (fresh) {
+                buffer.putInt(0, MAGIC);
+                buffer.putShort(4, VERSION);
+                buffer.putShort(6, (short) RECORD_SIZE);
+                buffer.putLong(8, day);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getShort(6) != RECORD_SIZE || buffer.getLong(8) != day) {
+                Log.w(TAG, "타임라인 파일 형식 불일치: " + file.getName());
+                if (!write) {
+                    return null;
+                }
+                for (int i = 0; i < FILE_SIZE; i += 8) {
+                    buffer.putLong(i, 0);
+                }
+                buffer.putInt(0, MAGIC);
+                buffer.putShort(4, VERSION);
+                buffer.putShort(6, (short) RECORD_SIZE);
+                buffer.putLong(8, day);
+            }
+            return buffer;
+        } catch (IOException e) {
+            Log.e(TAG, "타임라인 파일 매핑 실패: " + file.getName(), e);
+            return null;
+        }
+    }
+
+    private void purgeOlderThan(long oldestDay) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.startsWith("day-") || !name.endsWith(".bin")) {
+                continue;
+            }
+            try {
+                long day = Long.parseLong(name.substring(4, name.length() - 4));
+                if (day < oldestDay && file.delete()) {
+                    Log.d(TAG, "오래된 타임라인 삭제: " + name);
+                }
+            } catch (NumberFormatException e) {
+                // 다른 형식의 파일은 무시
+            }
+        }
+    }
+}
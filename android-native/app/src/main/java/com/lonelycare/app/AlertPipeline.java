@@ -0,0 +1,254 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FCM 친구 상태 알림 수신 파이프라인 - 알림 폭주(여러 친구 동시 경보, 서버 재전송) 흡수
+ *
+ *  1. 중복 제거: 메시지 ID(MESSAGE_ID_WINDOW), 친구+레벨(FRIEND_LEVEL_WINDOW) 기준 시간 제한 LRU
+ *  2. 묶음 표시: BURST_WINDOW 동안 들어온 알림을 모아 한 번에 표시
+ *     (여러 건이면 그룹 요약 알림 하나만 울림). 응급 알림은 기다리지 않고 바로 표시
+ *     onMessageReceived 가 끝나면 FCM 의 wake lock 도 풀리므로, 묶음이 표시될 때까지
+ *     제한 시간 wake lock 을 따로 잡는다 (Doze 중 업타임 타이머가 멈춰 알림이 밀리지 않도록)
+ *  3. 화면 전달: 같은 묶음의 메시지를 이벤트 하나로 묶어 WebEventBus 로 전달
+ *
+ * 100건이 한꺼번에 와도 알림/진동/JS 실행은 묶음당 한 번씩이다.
+ */
+public class AlertPipeline {
+    private static final String TAG = "AlertPipeline";
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long MESSAGE_ID_WINDOW = 10 * MINUTE;
+    private static final long FRIEND_LEVEL_WINDOW = 5 * MINUTE;
+    private static final int MAX_MESSAGE_IDS = 256;
+    private static final int MAX_FRIEND_LEVELS = 128;
+    // FCM 은 onMessageReceived 후 프로세스를 잠시만 살려두므로 짧게 유지
+    private static final long BURST_WINDOW = 1500;
+    // 묶음 대기 중 CPU 유지 (묶음 시간 + 여유)
+    private static final long BURST_WAKE_TIMEOUT = BURST_WINDOW + 3000;
+    // 한 번에 WebView 로 넘길 최대 메시지 수 (넘치면 오래된 것부터 버림)
+    private static final int MAX_UI_BATCH = 50;
+
+    /**
+     * 수신한 알림 한 건 (불변)
+     */
+    static final class Alert {
+        final String messageId;
+        final String title;
+        final String body;
+        final String alertLevel;
+        final String friendId;
+        final String friendName;
+        // WebView 로 넘길 원본 메시지 JSON
+        final String json;
+        final NotificationDispatcher.Level level;
+
+        Alert(String messageId, String title, String body, String alertLevel,
+              String friendId, String friendName, String json) {
+            this.messageId = messageId;
+            this.title = title;
+            this.body = body;
+            this.alertLevel = alertLevel;
+            this.friendId = friendId;
+            this.friendName = friendName;
+            this.json = json;
+            this.level = NotificationDispatcher.level(alertLevel);
+        }
+    }
+
+    /**
+     * 최근 본 키 → 시각 (window 가 지나면 새 것으로 취급, 가장 오래된 것부터 버림)
+     */
+    private static final class RecentKeys extends LinkedHashMap<String, Long> {
+        private final int capacity;
+        private final long window;
+
+        RecentKeys(int capacity, long window) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+            this.window = window;
+        }
+
+        /**
+         * 처음 보거나 window 가 지났으면 기록하고 true
+         */
+        boolean mark(String key, long now) {
+            Long seen = get(key);
+            if (seen != null && now - seen < window) {
+                return false;
+            }
+            // 다시 넣어 삽입 순서를 갱신
+            remove(key);
+            put(key, now);
+            return true;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static AlertPipeline instance;
+
+    public static synchronized AlertPipeline getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlertPipeline(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final NotificationDispatcher dispatcher;
+    private final EventLog eventLog;
+    private final Handler handler = CareWorker.getHandler();
+    private final PowerManager.WakeLock burstWakeLock;
+
+    private final RecentKeys messageIds = new RecentKeys(MAX_MESSAGE_IDS, MESSAGE_ID_WINDOW);
+    private final RecentKeys friendLevels = new RecentKeys(MAX_FRIEND_LEVELS, FRIEND_LEVEL_WINDOW);
+
+    // 묶음 대기 중인 알림 / WebView 메시지
+    private List<Alert> pendingAlerts = new ArrayList<>();
+    private List<String> pendingMessages = new ArrayList<>();
+    // 대기 중인 메시지 중 가장 큰 EventLog 순번
+    private long pendingMessageSeq = 0;
+    private boolean flushScheduled = false;
+
+    private final Runnable flushTask = this::flush;
+    private final Runnable flushMessagesTask = this::flushMessages;
+
+    private AlertPipeline(Context context) {
+        this.dispatcher = NotificationDispatcher.getInstance(context);
+        this.eventLog = EventLog.getInstance(context);
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.burstWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "LonelyCare:AlertBurst");
+        this.burstWakeLock.setReferenceCounted(false);
+    }
+
+    /**
+     * 알림 한 건 수신 (FCM 스레드에서 호출)
+     *
+     * @return 중복이라 버렸으면 false
+     */
+    public boolean submit(Alert alert) {
+        long now = System.currentTimeMillis();
+        boolean emergency = alert.level == NotificationDispatcher.EMERGENCY;
+        synchronized (this) {
+            if (isDuplicate(alert, now)) {
+                PowerStats.count(PowerStats.NOTIFICATION + "duplicate");
+                Log.d(TAG, "중복 알림 무시: " + alert.friendName + " (" + alert.level.name + ")");
+                return false;
+            }
+            if (alert.json != null) {
+                // 화면이 없어도 나중에 따라잡을 수 있도록 기록
+                pendingMessageSeq = eventLog.append("fcm_messages", "[" + alert.json + "]");
+                if (pendingMessages.size() >= MAX_UI_BATCH) {
+                    pendingMessages.remove(0);
+                }
+                pendingMessages.add(alert.json);
+            }
+            if (!emergency) {
+                pendingAlerts.add(alert);
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    // FCM wake lock 이 있는 동안 잡아 두고 flush 에서 해제
+                    burstWakeLock.acquire(BURST_WAKE_TIMEOUT);
+                    PowerStats.count(PowerStats.WAKELOCK + "alert_burst");
+                    handler.postDelayed(flushTask, BURST_WINDOW);
+                }
+            }
+        }
+
+        if (emergency) {
+            // 응급은 묶지 않고 즉시 - 생명구조 알림이 지연되면 안 됨
+            dispatcher.showAlert(alert.title, alert.body, alert.alertLevel, alert.friendId, alert.friendName);
+            PowerStats.count(PowerStats.NOTIFICATION + "emergency");
+            handler.post(flushMessagesTask);
+        }
+        return true;
+    }
+
+    private boolean isDuplicate(Alert alert, long now) {
+        if (alert.messageId != null && !messageIds.mark(alert.messageId, now)) {
+            return true;
+        }
+        // 친구 없는 일반 알림은 메시지 ID 로만 거름
+        return alert.friendId != null && !friendLevels.mark(alert.friendId + "|" + alert.level.name, now);
+    }
+
+    /**
+     * 묶음 종료 - 모인 알림을 한 번에 표시하고 WebView 로 전달 (CareWorker 스레드)
+     */
+    private void flush() {
+        List<Alert> alerts;
+        synchronized (this) {
+            alerts = pendingAlerts;
+            pendingAlerts = new ArrayList<>();
+            flushScheduled = false;
+        }
+        try {
+            showBurst(alerts);
+        } finally {
+            synchronized (this) {
+                // 그 사이 새 묶음이 시작됐으면 그 묶음의 flush 가 해제
+                if (!flushScheduled && burstWakeLock.isHeld()) {
+                    burstWakeLock.release();
+                }
+            }
+        }
+    }
+
+    private void showBurst(List<Alert> alerts) {
+        try {
+            if (alerts.size() == 1) {
+                Alert alert = alerts.get(0);
+                dispatcher.showAlert(alert.title, alert.body, alert.alertLevel, alert.friendId, alert.friendName);
+            } else if (!alerts.isEmpty()) {
+                dispatcher.showAlertGroup(alerts);
+                Log.d(TAG, "알림 " + alerts.size() + "건을 그룹 요약으로 표시");
+            }
+            PowerStats.add(PowerStats.NOTIFICATION + "alert", alerts.size());
+            PowerStats.count(PowerStats.NOTIFICATION + "burst");
+        } catch (Exception e) {
+            Log.e(TAG, "❌ 묶음 알림 표시 실패", e);
+            dispatcher.showFallback();
+        }
+        flushMessages();
+    }
+
+    /**
+     * 대기 중인 메시지를 이벤트 하나로 WebView 에 전달 (앱이 활성화된 경우만)
+     */
+    private void flushMessages() {
+        List<String> messages;
+        long seq;
+        synchronized (this) {
+            if (pendingMessages.isEmpty()) {
+                return;
+            }
+            messages = pendingMessages;
+            seq = pendingMessageSeq;
+            pendingMessages = new ArrayList<>();
+        }
+
+        StringBuilder array = new StringBuilder("[");
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) {
+                array.append(',');
+            }
+            array.append(messages.get(i));
+        }
+        array.append(']');
+
+        // 심이 onFCMBackgroundMessages, 없으면 기존 onFCMBackgroundMessage 를 메시지마다 호출
+        WebEventBus.getInstance().send("fcm_messages", array.toString(), seq);
+        Log.d(TAG, "📤 WebView로 메시지 " + messages.size() + "건 전달 요청");
+    }
+}
@@ -3,10 +3,6 @@ package com.lonelycare.app;
 import android.content.Context;
 import android.webkit.JavascriptInterface;
 import android.widget.Toast;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
@@ -17,50 +13,58 @@ import android.net.Uri;
 import android.util.Base64;
 import java.io.InputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import android.content.ContentResolver;
-import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
-import androidx.core.app.NotificationCompat;
 import android.os.Build;
 
-public class AndroidBridge implements SensorEventListener {
+public class AndroidBridge implements MotionPipeline.Listener {
     private static final String TAG = "AndroidBridge";
     private Context context;
     private MainActivity activity;
-    private SensorManager sensorManager;
-    private Sensor accelerometer;
     private Handler handler;
-    private boolean isMonitoring = false;
-    private long lastMotionTime;
-    private static final long NO_MOTION_THRESHOLD = 30 * 60 * 1000; // 30분
+    private volatile boolean isMonitoring = false;
+    private static final long HOUR = 60 * 60 * 1000;
+    
+    // 센서는 CareEngineService 와 공유하는 파이프라인을 구독 (중복 샘플링 방지)
+    // 콜백은 파이프라인의 센서 스레드에서 호출됨
+    private final MotionPipeline motionPipeline;
+    private long lastMotionNotifyTime = 0;
+    private static final long MOTION_NOTIFY_INTERVAL = 1000; // WebView 알림 최소 간격 1초
+    private static final int MAX_REPLAY_EVENTS = 200; // 페이지가 붙을 때 한 번에 따라잡는 최대 이벤트 수
     
     // 현재 선택 중인 파일 타입 저장
     private String currentFileType = "profile";
     
-    // 알림 채널 ID
-    private static final String CHANNEL_ID = "lonely_care_notifications";
-    private static final String CHANNEL_NAME = "친구 상태 알림";
-    private int notificationId = 100;
     private NotificationManager notificationManager;
     
     public AndroidBridge(Context context, MainActivity activity) {
         this.context = context;
         this.activity = activity;
         this.handler = new Handler(Looper.getMainLooper());
-        this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
-        this.accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-        this.lastMotionTime = System.currentTimeMillis();
+        this.motionPipeline = MotionPipeline.getInstance(context);
         this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        registerChannelListeners();
+    }
+    
+    // 메시지 포트로 오는 JS 요청 (LonelyCareNative.send) - 반환값이 필요 없는 호출은 브리지 스레드를 막지 않음
+    private void registerChannelListeners() {
+        NativeChannel channel = WebEventBus.getInstance().getChannel();
+        channel.on("session_status", data -> updateSessionStatus(String.valueOf(data)));
+        channel.on("keep_alive", data -> keepSessionAlive());
+        channel.on("ack_alert", data -> ackAlert(String.valueOf(data)));
     }
     
     @JavascriptInterface
     public void startSensorService() {
         Log.d(TAG, "센서 서비스 시작");
-        if (!isMonitoring && accelerometer != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL);
+        if (!isMonitoring && motionPipeline.hasAccelerometer()) {
+            motionPipeline.addListener(this);
+            motionPipeline.acquire();
             isMonitoring = true;
-            startMotionCheck();
             showToast("움직임 감지 시작");
         }
     }
@@ -69,7 +73,8 @@ public class AndroidBridge implements SensorEventListener {
     public void stopSensorService() {
         Log.d(TAG, "센서 서비스 중지");
         if (isMonitoring) {
-            sensorManager.unregisterListener(this);
+            motionPipeline.removeListener(this);
+            motionPipeline.release();
             isMonitoring = false;
             showToast("움직임 감지 중지");
         }
@@ -80,8 +85,9 @@ public class AndroidBridge implements SensorEventListener {
         try {
             JSONObject status = new JSONObject();
             status.put("isMonitoring", isMonitoring);
-            status.put("lastMotionTime", lastMotionTime);
-            status.put("hasAccelerometer", accelerometer != null);
+            status.put("lastMotionTime", motionPipeline.getLastMotionTime());
+            status.put("activityState", MotionClassifier.stateName(motionPipeline.getActivityState()));
+            status.put("hasAccelerometer", motionPipeline.hasAccelerometer());
             return status.toString();
         } catch (Exception e) {
             return "{}";
@@ -126,6 +132,12 @@ public class AndroidBridge implements SensorEventListener {
             .edit()
             .putString(key, value)
             .apply();
+        
+        // 로그인 정보 저장 = 세션 시작
+        if ("currentUser".equals(key)) {
+            SessionEngine.getInstance(context).start();
+            BootSnapshot.getInstance(context).invalidate();
+        }
     }
     
     @JavascriptInterface
@@ -152,6 +164,8 @@ public class AndroidBridge implements SensorEventListener {
             .edit()
             .clear()
             .apply();
+        SessionEngine.getInstance(context).stop();
+        BootSnapshot.getInstance(context).invalidate();
     }
     
     @JavascriptInterface
@@ -168,92 +182,152 @@ public class AndroidBridge implements SensorEventListener {
     public void scheduleHeartbeat(String pairId, int delaySeconds) {
         Log.d(TAG, "하트비트 스케줄링 요청: " + pairId + ", 지연: " + delaySeconds + "초");
         
-        Intent serviceIntent = new Intent(context, HeartbeatService.class);
-        serviceIntent.setAction("SCHEDULE_HEARTBEAT");
-        serviceIntent.putExtra("pair_id", pairId);
-        serviceIntent.putExtra("delay_seconds", delaySeconds);
-        context.startService(serviceIntent);
+        // 서비스를 거치지 않고 스케줄러에 바로 등록
+        HeartbeatScheduler.getInstance(context).schedule(pairId, delaySeconds);
+    }
+    
+    // 여러 친구 쌍을 한 번에 등록 (로그인 시 친구 목록 전체) - {"pairId": delaySeconds, ...}
+    @JavascriptInterface
+    public int scheduleHeartbeats(String batchJson) {
+        try {
+            JSONObject batch = new JSONObject(batchJson);
+            Map<String, Integer> pairs = new HashMap<>();
+            Iterator<String> keys = batch.keys();
+            while (keys.hasNext()) {
+                String pairId = keys.next();
+                pairs.put(pairId, batch.optInt(pairId, 1));
+            }
+            int changed = HeartbeatScheduler.getInstance(context).scheduleAll(pairs);
+            Log.d(TAG, "하트비트 일괄 스케줄링: " + pairs.size() + "개 중 " + changed + "개 변경");
+            return changed;
+        } catch (Exception e) {
+            Log.e(TAG, "하트비트 일괄 스케줄링 실패: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    @JavascriptInterface
+    public void cancelHeartbeat(String pairId) {
+        Log.d(TAG, "하트비트 스케줄 삭제 요청: " + pairId);
+        HeartbeatScheduler.getInstance(context).unschedule(pairId);
+    }
+    
+    // 하트비트 슬롯 정보 (분산 모드의 시간 내 위치, 다음 실행 시각 등)
+    @JavascriptInterface
+    public String getHeartbeatSlot() {
+        return HeartbeatScheduler.getInstance(context).getSlotInfo();
+    }
+    
+    // 하트비트 분산 모드 설정 (false 면 기존처럼 정시 + delaySeconds)
+    @JavascriptInterface
+    public void setHeartbeatStaggered(boolean enabled) {
+        HeartbeatScheduler.getInstance(context).setStaggered(enabled);
+    }
+    
+    // 네이티브 업로더 설정 (WebView 없이 하트비트/움직임 전송) - 빈 endpoint 면 비활성
+    @JavascriptInterface
+    public void configureUploader(String endpoint, String token, String userId) {
+        Log.d(TAG, "업로더 설정 요청: " + endpoint);
+        LivenessUploader.getInstance(context).configure(endpoint, token, userId);
+    }
+    
+    // 알림 확인 기록 - 오프라인이어도 저널에 남겨 두었다가 연결되면 전송
+    @JavascriptInterface
+    public void ackAlert(String alertId) {
+        Log.d(TAG, "알림 확인: " + alertId);
+        LivenessUploader.getInstance(context).enqueueAlertAck(alertId, System.currentTimeMillis());
+    }
+    
+    // 페이지 시작 상태 스냅샷 (JSON) - 문서 시작 스크립트로 넣은 window.__LONELYCARE_BOOT__ 와 같은 내용
+    @JavascriptInterface
+    public String getBootSnapshot() {
+        return BootSnapshot.getInstance(context).build();
+    }
+    
+    // 화면이 없는 동안 쌓인 이벤트 중 afterSeq 이후 것 (JSON, 페이지 심이 붙을 때 호출)
+    @JavascriptInterface
+    public String getEventsSince(long afterSeq) {
+        return EventLog.getInstance(context).since(afterSeq, MAX_REPLAY_EVENTS);
+    }
+    
+    // 마지막 재부팅 후 모니터링 복구까지 걸린 시간 (JSON)
+    @JavascriptInterface
+    public String getBootRecoveryStats() {
+        return BootReceiver.getStats(context);
+    }
+    
+    // 기기 비용 계측값 (JSON) - 프로세스 누적값과 최근 hours 시간의 시간대별 기록
+    @JavascriptInterface
+    public String getPowerStats(int hours) {
+        return PowerStats.getInstance(context).toJson(hours);
+    }
+    
+    // 백그라운드 서비스 재시작 기록과 백오프 상태 (JSON)
+    @JavascriptInterface
+    public String getServiceRestartHistory() {
+        return ServiceSupervisor.getInstance(context).toJson();
+    }
+    
+    // 전송 대기 중인 이벤트 수 (오프라인 상태 표시용)
+    @JavascriptInterface
+    public int getPendingUploadCount() {
+        return LivenessUploader.getInstance(context).getPendingCount();
+    }
+    
+    // 움직임 감지 배치 지연 예산 설정 (감지 지연 ↔ CPU 기상 횟수 트레이드오프)
+    @JavascriptInterface
+    public void setMotionLatencyBudget(int seconds) {
+        Log.d(TAG, "움직임 감지 배치 지연 설정 요청: " + seconds + "초");
+        
+        // 공용 파이프라인에 바로 반영 (서비스와 브리지 모두 같은 센서 등록을 사용)
+        motionPipeline.setMaxReportLatency(seconds * 1000L);
+    }
+    
+    // 최근 활동 기록 조회 (예: 7일 x 1시간 단위 = getActivityTimeline(168, 60))
+    @JavascriptInterface
+    public String getActivityTimeline(int hours, int bucketMinutes) {
+        long now = System.currentTimeMillis();
+        return ActivityTimeline.getInstance(context).query(now - hours * HOUR, now, bucketMinutes);
     }
     
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            float x = event.values[0];
-            float y = event.values[1];
-            float z = event.values[2];
+    public void onMotion(int state, float energy, long motionTime) {
+        // 파이프라인은 버스트당 한 번 호출하지만 JS 실행은 최소 간격으로만
+        long now = System.currentTimeMillis();
+        if (now - lastMotionNotifyTime >= MOTION_NOTIFY_INTERVAL) {
+            lastMotionNotifyTime = now;
+            String data = "{\"magnitude\":" + (float) Math.sqrt(energy) +
+                ",\"state\":\"" + MotionClassifier.stateName(state) + "\"}";
             
-            float magnitude = (float) Math.sqrt(x*x + y*y + z*z);
-            float movement = Math.abs(magnitude - 9.8f);
-            
-            if (movement > 0.5f) {
-                lastMotionTime = System.currentTimeMillis();
-                
-                activity.runOnUiThread(() -> {
-                    activity.webView.evaluateJavascript(
-                        "if(window.onMotionDetected) window.onMotionDetected({magnitude:" + magnitude + "})",
-                        null
-                    );
-                });
-            }
+            WebEventBus.getInstance().sendLatest("motion", data);
         }
     }
     
     @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // 정확도 변경 처리
+    public void onActivityFlushed(long lastMotionTime) {
+        // 저장 알림은 CareEngineService 가 EventLog 로 처리
     }
     
     @JavascriptInterface
     public void updateSessionStatus(String status) {
         Log.d(TAG, "세션 상태 업데이트: " + status);
-        // SharedPreferences에 세션 상태 저장
-        context.getSharedPreferences("AnsimCare", Context.MODE_PRIVATE)
-            .edit()
-            .putString("sessionStatus", status)
-            .putLong("lastSessionUpdate", System.currentTimeMillis())
-            .apply();
+        SessionEngine.getInstance(context).onBridgeCall(status);
+        LivenessUploader.getInstance(context).enqueueSession(status, System.currentTimeMillis());
     }
     
     @JavascriptInterface
     public void keepSessionAlive() {
         Log.d(TAG, "세션 유지 요청");
-        // 백그라운드에서도 세션 유지를 위해 알람 매니저 사용
-        Intent serviceIntent = new Intent(context, SessionKeepAliveService.class);
-        context.startService(serviceIntent);
+        // 주기 폴링 없이 이벤트 기반으로 유지 (토큰 갱신이 필요할 때만 알람)
+        SessionEngine sessionEngine = SessionEngine.getInstance(context);
+        sessionEngine.onBridgeCall("active");
+        sessionEngine.start();
     }
     
     @JavascriptInterface
     public boolean isSessionActive() {
-        long lastUpdate = context.getSharedPreferences("AnsimCare", Context.MODE_PRIVATE)
-            .getLong("lastSessionUpdate", 0);
-        long currentTime = System.currentTimeMillis();
-        // 10분 이내에 업데이트가 있었으면 세션 활성
-        return (currentTime - lastUpdate) < (10 * 60 * 1000);
-    }
-    
-    private void startMotionCheck() {
-        handler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if (isMonitoring) {
-                    long currentTime = System.currentTimeMillis();
-                    long timeSinceMotion = currentTime - lastMotionTime;
-                    
-                    if (timeSinceMotion > NO_MOTION_THRESHOLD) {
-                        int hours = (int) (timeSinceMotion / (1000 * 60 * 60));
-                        
-                        activity.runOnUiThread(() -> {
-                            activity.webView.evaluateJavascript(
-                                "if(window.onNoMotionAlert) window.onNoMotionAlert(" + hours + ")",
-                                null
-                            );
-                        });
-                    }
-                    
-                    handler.postDelayed(this, 5 * 60 * 1000);
-                }
-            }
-        }, 5 * 60 * 1000);
+        // 포그라운드 / 최근 이벤트 / 유효한 FCM 토큰 기준
+        return SessionEngine.getInstance(context).isActive();
     }
     
     // 파일 선택을 위한 메서드 추가
@@ -372,88 +446,15 @@ public class AndroidBridge implements SensorEventListener {
         }
     }
     
-    // 네이티브 Android 알림 표시
+    // 네이티브 Android 알림 표시 (채널/인텐트는 디스패처가 캐시)
     @JavascriptInterface
     public void showNotification(String title, String message) {
         Log.d(TAG, "네이티브 알림 표시 요청: " + title);
-        
-        handler.post(() -> {
-            try {
-                NotificationManager notificationManager = 
-                    (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-                
-                // Android 8.0 이상에서는 알림 채널 필요
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    NotificationChannel channel = new NotificationChannel(
-                        CHANNEL_ID,
-                        CHANNEL_NAME,
-                        NotificationManager.IMPORTANCE_HIGH
-                    );
-                    channel.setDescription("친구의 안전 상태를 알려주는 중요한 알림입니다");
-                    channel.enableVibration(true);
-                    channel.setVibrationPattern(new long[]{0, 500, 200, 500});
-                    notificationManager.createNotificationChannel(channel);
-                }
-                
-                // 알림 클릭 시 앱 열기
-                Intent intent = new Intent(context, MainActivity.class);
-                intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-                PendingIntent pendingIntent = PendingIntent.getActivity(
-                    context, 0, intent, 
-                    Build.VERSION.SDK_INT >= Build.VERSION_CODES.M 
-                        ? PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                        : PendingIntent.FLAG_UPDATE_CURRENT
-                );
-                
-                // 알림 아이콘 및 색상 결정 (이모지 아이콘 기반)
-                int icon = android.R.drawable.ic_dialog_alert;
-                int color = 0xFFFF0000; // 기본 빨간색
-                String notificationCategory = NotificationCompat.CATEGORY_ALARM;
-                
-                // 제목에서 이모지나 키워드로 레벨 판단
-                if (title.contains("🟡") || title.contains("주의")) {
-                    color = 0xFFFFC107; // 노란색
-                    icon = android.R.drawable.ic_dialog_info;
-                    notificationCategory = NotificationCompat.CATEGORY_STATUS;
-                } else if (title.contains("🟠") || title.contains("경고")) {
-                    color = 0xFFFF6F00; // 주황색
-                    icon = android.R.drawable.ic_dialog_alert;
-                    notificationCategory = NotificationCompat.CATEGORY_ALARM;
-                } else if (title.contains("🔴") || title.contains("긴급")) {
-                    color = 0xFFDC3545; // 진한 빨간색
-                    icon = android.R.drawable.ic_dialog_alert;
-                    notificationCategory = NotificationCompat.CATEGORY_ALARM;
-                }
-                
-                // 알림 생성
-                NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
-                    .setSmallIcon(icon)
-                    .setContentTitle("🚨 lonely-care 알림")
-                    .setContentText(title)
-                    .setSubText("친구 안전 확인 시스템")
-                    .setStyle(new NotificationCompat.BigTextStyle()
-                        .bigText(message)
-                        .setBigContentTitle(title) // 이미 이모지가 포함된 제목 사용
-                        .setSummaryText("lonely-care"))
-                    .setPriority(NotificationCompat.PRIORITY_MAX)
-                    .setCategory(notificationCategory)
-                    .setContentIntent(pendingIntent)
-                    .setAutoCancel(true)
-                    .setColor(color)
-                    .setVibrate(new long[]{0, 1000, 500, 1000})
-                    .setSound(android.provider.Settings.System.DEFAULT_NOTIFICATION_URI)
-                    .setLights(color, 3000, 3000)
-                    .setOngoing(false)
-                    .setShowWhen(true);
-                
-                // 알림 표시
-                notificationManager.notify(notificationId++, builder.build());
-                Log.d(TAG, "네이티브 알림 표시 완료");
-                
-            } catch (Exception e) {
-                Log.e(TAG, "알림 표시 실패: " + e.getMessage());
-            }
-        });
+        try {
+            NotificationDispatcher.getInstance(context).showBridgeNotification(title, message);
+        } catch (Exception e) {
+            Log.e(TAG, "알림 표시 실패: " + e.getMessage());
+        }
     }
     
     // 알림 권한 확인
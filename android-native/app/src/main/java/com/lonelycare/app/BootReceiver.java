@@ -3,24 +3,136 @@ package com.lonelycare.app;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
 import android.util.Log;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 재부팅 후 모니터링 복구
+ *
+ * LOCKED_BOOT_COMPLETED(첫 잠금 해제 전): 움직임 감지, 무활동 알람, 하트비트 알람 복구
+ *  - 이 상태 값은 모두 기기 보호 저장소(DirectBootStorage)에 있어 잠금 상태에서도 읽힌다
+ * BOOT_COMPLETED(잠금 해제 후): 위 단계를 다시 확인하고 세션 유지, 미전송 업로드까지 복구
+ * MY_PACKAGE_REPLACED(앱 업데이트 후): 잠금 해제 상태와 같은 복구 (통계는 부팅 때만 기록)
+ *
+ * 모든 작업은 goAsync 로 메인 스레드 밖에서 한 번에 처리하고,
+ * 부팅 후 모니터링 재개까지 걸린 시간(elapsedRealtime 기준)을 기록한다.
+ */
 public class BootReceiver extends BroadcastReceiver {
     private static final String TAG = "BootReceiver";
-    
+
+    private static final String PREF_NAME = "boot_recovery";
+    private static final String KEY_BOOT_TIME = "boot_time";
+    private static final String KEY_LOCKED_MS = "locked_ready_ms";
+    private static final String KEY_UNLOCKED_MS = "unlocked_ready_ms";
+    private static final String KEY_PIPELINE_MS = "pipeline_ms";
+
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
-            Log.d(TAG, "부팅 완료 - 움직임 감지 서비스 시작");
-            
-            Intent serviceIntent = new Intent(context, MotionDetectionService.class);
-            
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                context.startForegroundService(serviceIntent);
-            } else {
-                context.startService(serviceIntent);
+        final String action = intent.getAction();
+        final boolean replaced = Intent.ACTION_MY_PACKAGE_REPLACED.equals(action);
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action) && !Intent.ACTION_LOCKED_BOOT_COMPLETED.equals(action)
+                && !replaced) {
+            return;
+        }
+        Log.d(TAG, "부팅 완료 수신: " + action);
+
+        final PendingResult pendingResult = goAsync();
+        final Context appContext = context.getApplicationContext();
+        CareWorker.post(() -> {
+            boolean uploading = false;
+            try {
+                boolean unlocked = replaced || Intent.ACTION_BOOT_COMPLETED.equals(action);
+                uploading = recover(appContext, unlocked, !replaced, pendingResult);
+            } catch (Exception e) {
+                Log.e(TAG, "부팅 복구 실패", e);
+            } finally {
+                if (!uploading) {
+                    pendingResult.finish();
+                }
             }
+        });
+    }
+
+    /**
+     * 스케줄 전체를 한 번에 다시 건다 (두 번 실행돼도 결과는 같음)
+     *
+     * @return 미전송 업로드가 업로더 스레드로 넘어가 그쪽에서 pendingResult 를 끝내면 true
+     */
+    private static boolean recover(Context context, boolean unlocked, boolean boot, PendingResult pendingResult) {
+        long start = SystemClock.elapsedRealtime();
+
+        if (unlocked) {
+            // 잠금 상태에서 먼저 시작된 프로세스면 여기서 CE 데이터를 DE 로 옮겨 합침
+            DirectBootStorage.get(context);
+        }
+
+        // 1. 케어 엔진 (부팅 브로드캐스트는 포그라운드 서비스 시작 허용)
+        CareEngineService.start(context);
+
+        // 2. 무활동 마감 알람 (서비스 시작을 기다리지 않고 바로)
+        InactivityMonitor.getInstance(context).reschedule();
+
+        // 3. 하트비트 - 친구 쌍 전체가 통합 스케줄러 작업 하나를 공유
+        HeartbeatScheduler scheduler = HeartbeatScheduler.getInstance(context);
+        scheduler.rescheduleAll();
+
+        if (unlocked) {
+            // 4. 세션 갱신 알람 (로그인 정보는 CE 저장소에 있어 잠금 해제 후에만)
+            SessionEngine.getInstance(context).start();
+        }
+
+        long end = SystemClock.elapsedRealtime();
+        if (boot) {
+            report(context, unlocked, end, end - start, scheduler.size());
+        } else {
+            Log.d(TAG, "앱 업데이트 후 모니터링 복구 완료: " + (end - start) + "ms");
+        }
+
+        // 5. 재부팅 전에 보내지 못한 이벤트 (업로더 스레드에서 한 묶음만, 나머지는 예약 전송)
+        if (unlocked) {
+            LivenessUploader uploader = LivenessUploader.getInstance(context);
+            if (uploader.isConfigured() && uploader.getPendingCount() > 0) {
+                uploader.flushAsync(pendingResult::finish);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void report(Context context, boolean unlocked, long readyMs, long pipelineMs, int pairs) {
+        Log.d(TAG, "모니터링 복구 완료 (" + (unlocked ? "잠금 해제" : "잠금 상태") + "): 부팅 후 "
+            + readyMs + "ms, 복구 작업 " + pipelineMs + "ms, 친구 쌍 " + pairs + "개");
+
+        SharedPreferences prefs = DirectBootStorage.get(context).getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        long bootTime = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+        SharedPreferences.Editor editor = prefs.edit();
+        // 같은 부팅의 잠금/해제 기록만 함께 남도록 새 부팅이면 초기화 (시계 오차 1분 허용)
+        if (Math.abs(prefs.getLong(KEY_BOOT_TIME, 0) - bootTime) > 60 * 1000) {
+            editor.clear().putLong(KEY_BOOT_TIME, bootTime);
+        }
+        editor.putLong(unlocked ? KEY_UNLOCKED_MS : KEY_LOCKED_MS, readyMs)
+            .putLong(KEY_PIPELINE_MS, pipelineMs)
+            .apply();
+    }
+
+    /**
+     * 마지막 부팅 복구 측정값 (JSON) - 값이 없으면 -1
+     */
+    public static String getStats(Context context) {
+        SharedPreferences prefs = DirectBootStorage.get(context).getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        JSONObject json = new JSONObject();
+        try {
+            json.put("bootTime", prefs.getLong(KEY_BOOT_TIME, -1));
+            json.put("lockedReadyMs", prefs.getLong(KEY_LOCKED_MS, -1));
+            json.put("unlockedReadyMs", prefs.getLong(KEY_UNLOCKED_MS, -1));
+            json.put("pipelineMs", prefs.getLong(KEY_PIPELINE_MS, -1));
+        } catch (JSONException e) {
+            Log.e(TAG, "부팅 복구 통계 생성 실패", e);
         }
+        return json.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,212 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.webkit.ScriptHandler;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Collections;
+
+/**
+ * 페이지 시작 시점 상태 스냅샷 - 시작할 때 브리지 왕복과 저장소 복구를 한 번에 대체
+ *
+ * 네이티브가 로그인 상태, 사용자, 알림 권한을 한 번에 모아 window.__LONELYCARE_BOOT__ 로 넣는다.
+ * 페이지(index.html 시작 스크립트, advanced-notification-manager)는 이 값이 있으면 쓰고,
+ * 없으면 기존처럼 localStorage 와 브리지를 직접 본다.
+ *
+ * 첫 스냅샷은 attach 에서 바로 만든다 (설정 값 몇 개만 읽으므로 첫 로드가 작업 스레드 대기열을 기다리지 않게).
+ * 이후 담긴 상태가 바뀔 때마다 (saveData, clearData, 알림 권한 결과) CareWorker 에서 다시 만들고
+ * 메인 스레드에서 다시 등록하므로, 다음 페이지 이동은 항상 최신 값으로 시작한다.
+ * 시간에 따라 바뀌는 값 (세션 유효성, 마지막 움직임, 알림, 하트비트) 은 넣지 않는다 - 이벤트와 따라잡기로 받음.
+ *
+ * DOCUMENT_START_SCRIPT 를 지원하면 페이지 스크립트보다 먼저 실행되도록 등록하고,
+ * 지원하지 않으면 onPageStarted 에서 evaluateJavascript 로 넣는다 (페이지 스크립트와 순서 보장 없음).
+ * 등록 범위가 모든 frame 이므로 값은 앱 페이지(file:)에서만 설정하고, 토큰 같은 비밀 값은 넣지 않는다.
+ */
+public class BootSnapshot {
+    private static final String TAG = "BootSnapshot";
+
+    private static final String GLOBAL = "__LONELYCARE_BOOT__";
+    private static final int VERSION = 2;
+
+    private static BootSnapshot instance;
+
+    public static synchronized BootSnapshot getInstance(Context context) {
+        if (instance == null) {
+            instance = new BootSnapshot(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 아래 값은 메인 스레드에서만 변경
+    private WebView webView;
+    // 현재 등록된 문서 시작 스크립트
+    private ScriptHandler handler;
+    // 마지막으로 만든 스냅샷 (대체 경로용, 아직 없으면 null)
+    private String latest;
+    // attach/detach 마다 증가 - 이전 WebView 용 빌드는 버림 (빌드는 CareWorker 에서 순서대로 끝남)
+    private int attachment = 0;
+
+    private BootSnapshot(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * 페이지 스크립트보다 먼저 실행할 수 있는 WebView 인지
+     */
+    static boolean isDocumentStartSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.DOCUMENT_START_SCRIPT);
+    }
+
+    /**
+     * WebView 연결 (메인 스레드, MainActivity.onCreate, 첫 loadUrl 전) - 첫 스냅샷을 바로 만들어 등록
+     */
+    void attach(WebView webView) {
+        this.webView = webView;
+        attachment++;
+        latest = build();
+        install(latest);
+    }
+
+    /**
+     * 페이지 스크립트보다 먼저 들어가는 스냅샷이 등록돼 있는지 (메인 스레드)
+     */
+    boolean isInstalled() {
+        return handler != null;
+    }
+
+    /**
+     * WebView 연결 해제 (메인 스레드, MainActivity.onDestroy)
+     */
+    void detach(WebView webView) {
+        if (this.webView != webView) {
+            return;
+        }
+        attachment++;
+        remove();
+        this.webView = null;
+        this.latest = null;
+    }
+
+    /**
+     * 스냅샷에 담긴 상태가 바뀜 (아무 스레드) - 다시 만들어 등록
+     */
+    public void invalidate() {
+        mainHandler.post(() -> {
+            if (webView != null) {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * 문서 시작 스크립트를 쓸 수 없는 WebView - 페이지 로드 시작 때 바로 넣음 (onPageStarted)
+     */
+    void injectFallback(WebView webView) {
+        if (handler != null || latest == null) {
+            return;
+        }
+        webView.evaluateJavascript(script(latest), null);
+        PowerStats.count(PowerStats.WEBVIEW + "boot_snapshot_fallback");
+    }
+
+    // 메인 스레드
+    private void rebuild() {
+        int requested = attachment;
+        CareWorker.post(() -> {
+            String json = build();
+            mainHandler.post(() -> {
+                if (requested != attachment || webView == null) {
+                    return;
+                }
+                latest = json;
+                install(json);
+            });
+        });
+    }
+
+    private void install(String json) {
+        if (!isDocumentStartSupported()) {
+            return;
+        }
+        remove();
+        try {
+            // file:// 페이지는 origin 이 없으므로 "*" 로 등록 (스크립트 안에서 file: 만 허용)
+            handler = WebViewCompat.addDocumentStartJavaScript(webView, script(json),
+                Collections.singleton("*"));
+            PowerStats.count(PowerStats.WEBVIEW + "boot_snapshot");
+        } catch (RuntimeException e) {
+            Log.e(TAG, "문서 시작 스크립트 등록 실패", e);
+        }
+    }
+
+    private void remove() {
+        ScriptHandler old = handler;
+        handler = null;
+        if (old != null) {
+            old.remove();
+        }
+    }
+
+    private static String script(String json) {
+        return "if (location.protocol === 'file:') { window." + GLOBAL + " = Object.freeze(" + json + "); }";
+    }
+
+    /**
+     * 스냅샷 JSON - 모든 값은 같은 시점에 읽음 (attach 때는 메인 스레드, 이후 작업 스레드, 브리지 스레드)
+     */
+    public String build() {
+        long now = System.currentTimeMillis();
+        try {
+            SharedPreferences prefs = context.getSharedPreferences("AnsimCare", Context.MODE_PRIVATE);
+            String currentUser = prefs.getString("currentUser", null);
+
+            JSONObject snapshot = new JSONObject();
+            snapshot.put("version", VERSION);
+            snapshot.put("builtAt", now);
+            snapshot.put("loggedIn", currentUser != null && !currentUser.isEmpty());
+            snapshot.put("user", parseUser(currentUser));
+            snapshot.put("notificationPermission", hasNotificationPermission());
+            return snapshot.toString();
+        } catch (JSONException | RuntimeException e) {
+            // 스냅샷이 없으면 페이지는 기존처럼 저장소와 브리지를 직접 확인
+            Log.e(TAG, "부팅 스냅샷 생성 실패", e);
+            return "{\"version\":" + VERSION + ",\"builtAt\":" + now + ",\"error\":true}";
+        }
+    }
+
+    /**
+     * 저장된 사용자 정보 - JSON 이면 객체로, 아니면 문자열 그대로
+     */
+    private static Object parseUser(String currentUser) {
+        if (currentUser == null || currentUser.isEmpty()) {
+            return JSONObject.NULL;
+        }
+        try {
+            return new JSONObject(currentUser);
+        } catch (JSONException e) {
+            return currentUser;
+        }
+    }
+
+    private boolean hasNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return context.checkSelfPermission("android.permission.POST_NOTIFICATIONS")
+                == android.content.pm.PackageManager.PERMISSION_GRANTED;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+package com.lonelycare.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * CareScheduler 의 OS 알람 수신 - 도래한 작업을 케어 엔진 작업 스레드에서 한 번에 실행
+ */
+public class CareAlarmReceiver extends BroadcastReceiver {
+    private static final String TAG = "CareAlarmReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!CareScheduler.ACTION_CARE_ALARM.equals(intent.getAction())) {
+            return;
+        }
+        Log.d(TAG, "통합 알람 수신");
+
+        // 업로드처럼 작업 스레드 밖으로 넘긴 작업까지 모두 끝나면 브로드캐스트 처리 종료
+        final PendingResult pendingResult = goAsync();
+        final Context appContext = context.getApplicationContext();
+        final CareScheduler.Batch batch = new CareScheduler.Batch(pendingResult::finish);
+        CareWorker.post(() -> {
+            try {
+                CareScheduler.getInstance(appContext).onAlarm(batch);
+            } catch (Exception e) {
+                Log.e(TAG, "알람 작업 처리 실패", e);
+            } finally {
+                batch.done();
+            }
+        });
+    }
+}
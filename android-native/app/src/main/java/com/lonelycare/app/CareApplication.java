@@ -0,0 +1,16 @@
+package com.lonelycare.app;
+
+import android.app.Application;
+
+/**
+ * 앱 프로세스 진입점
+ * 알림 채널을 프로세스 시작 시 한 번만 등록해 FCM/브리지 알림 경로에서 채널 생성을 반복하지 않도록 함
+ */
+public class CareApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        NotificationDispatcher.getInstance(this);
+    }
+}
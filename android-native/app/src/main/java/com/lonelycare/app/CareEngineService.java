@@ -0,0 +1,246 @@
+package com.lonelycare.app;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+
+/**
+ * 안심케어 백그라운드 엔진 - 포그라운드 서비스 하나, 알림 하나로 모든 상시 작업을 담당
+ *
+ * 모듈
+ *  - 움직임: MotionPipeline 구독, 화면 켜짐/꺼짐 기록, 무활동 마감 알람
+ *  - 하트비트: HeartbeatScheduler 일정 복구/등록 (전송은 CareScheduler 알람에서)
+ *  - 세션: SessionEngine 시작 (토큰 갱신이 필요할 때만 알람)
+ *
+ * 모듈 작업은 모두 CareWorker 스레드 하나에서 순서대로 실행되고, 알람은 CareScheduler 하나를 공유한다.
+ * 시스템 재시작(START_STICKY)은 ServiceSupervisor 의 재시작 예산 안에서만 모듈을 다시 띄운다.
+ * 예전의 MotionDetectionService / HeartbeatService / SessionKeepAliveService 를 대체한다.
+ */
+public class CareEngineService extends Service {
+    private static final String TAG = "CareEngineService";
+
+    // 사용자가 바꾼 채널 설정이 유지되도록 기존 움직임 감지 채널을 그대로 사용
+    private static final String CHANNEL_ID = "motion_detection_channel";
+    private static final int NOTIFICATION_ID = 1;
+
+    // 통합 전 세션 유지 서비스가 만들었던 알림 채널 (한 번 정리)
+    private static final String LEGACY_SESSION_CHANNEL = "session_keepalive_channel";
+
+    // 외부에서 배치 지연 예산을 바꿀 때 사용하는 액션/extra
+    public static final String ACTION_UPDATE_LATENCY = "com.lonelycare.UPDATE_MOTION_LATENCY";
+    public static final String EXTRA_MAX_REPORT_LATENCY_MS = "max_report_latency_ms";
+
+    // 센서 등록/분류/활동 기록은 프로세스 공용 파이프라인이 담당 (브리지와 공유)
+    private MotionPipeline pipeline;
+    private boolean started = false;
+
+    // 재시작할 때마다 알림을 다시 만들지 않도록 인스턴스당 한 번만 생성
+    private Notification notification;
+
+    // 무활동 판정은 폴링 대신 마감 시각 알람으로 처리
+    private InactivityMonitor inactivityMonitor;
+
+    // 화면 켜짐/꺼짐은 런타임 등록 리시버로만 받을 수 있어 서비스가 타임라인에 기록
+    private BroadcastReceiver screenReceiver;
+
+    private final MotionPipeline.Listener pipelineListener = new MotionPipeline.Listener() {
+        @Override
+        public void onMotion(int state, float energy, long motionTime) {
+            // 이벤트마다 외부로 알리지 않음 - 저장 시점에만 알림
+        }
+
+        @Override
+        public void onActivityFlushed(long lastMotionTime) {
+            // 저장 주기에 맞춰서만 WebView로 활동 알림 (화면이 없으면 기록만 남아 나중에 따라잡음)
+            EventLog.getInstance(CareEngineService.this)
+                .publishLatest("sensor_activity", String.valueOf(lastMotionTime));
+
+            // WebView 가 없어도 백엔드에 활동 보고 (업로더가 묶어서 전송)
+            // 첫 잠금 해제 전에는 업로더 설정(CE 저장소)을 읽을 수 없으므로 건너뜀
+            if (DirectBootStorage.isUserUnlocked(CareEngineService.this)) {
+                LivenessUploader.getInstance(CareEngineService.this).enqueueMotion(lastMotionTime);
+            }
+
+            // 활동으로 무활동 마감이 밀렸으면 알람 재등록
+            inactivityMonitor.onActivity(lastMotionTime);
+
+            // 배치 효과 확인용: 지난 저장 이후 센서 배치 전달 횟수
+            pipeline.logAndResetStats();
+        }
+    };
+
+    /**
+     * 엔진 시작 (이미 실행 중이면 모듈 상태만 다시 확인)
+     */
+    public static void start(Context context) {
+        Intent intent = new Intent(context, CareEngineService.class);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(intent);
+        } else {
+            context.startService(intent);
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        Log.d(TAG, "케어 엔진 생성됨");
+        PowerStats.count(PowerStats.SERVICE + "care_engine_create");
+        // 시간대별 전력 통계 집계 시작
+        PowerStats.getInstance(this);
+
+        pipeline = MotionPipeline.getInstance(this);
+        pipeline.addListener(pipelineListener);
+        inactivityMonitor = InactivityMonitor.getInstance(this);
+
+        final ActivityTimeline timeline = ActivityTimeline.getInstance(this);
+        screenReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                final long time = System.currentTimeMillis();
+                final boolean screenOn = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+                CareWorker.post(() -> timeline.recordScreen(time, screenOn));
+            }
+        };
+        IntentFilter screenFilter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        screenFilter.addAction(Intent.ACTION_SCREEN_OFF);
+        registerReceiver(screenReceiver, screenFilter);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String action = intent != null ? intent.getAction() : null;
+        Log.d(TAG, "케어 엔진 시작됨: " + action);
+
+        // 포그라운드 알림은 엔진 전체에 하나 (startForegroundService 후에는 거절할 때도 필요)
+        if (notification == null) {
+            createNotificationChannel();
+            notification = buildNotification();
+        }
+        startForeground(NOTIFICATION_ID, notification);
+
+        final boolean firstStart = !started;
+        if (firstStart && !ServiceSupervisor.getInstance(this).admit(ServiceSupervisor.SERVICE_CARE_ENGINE, intent == null)) {
+            // 재시작 폭주 - 모듈을 띄우지 않고 멈춤 (백오프 후 감독자가 다시 시작)
+            stopForeground(true);
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        started = true;
+
+        if (ACTION_UPDATE_LATENCY.equals(action)) {
+            long requestedLatency = intent.getLongExtra(EXTRA_MAX_REPORT_LATENCY_MS, -1);
+            if (requestedLatency >= 0) {
+                pipeline.setMaxReportLatency(requestedLatency);
+            }
+        }
+
+        if (firstStart) {
+            // 움직임 모듈: 공용 파이프라인 사용 시작 (엔진당 한 번만)
+            pipeline.acquire();
+
+            CareWorker.post(() -> {
+                // 마지막 움직임 시간 초기화 (첫 실행시) + 무활동 마감 알람
+                pipeline.initLastMotionTimeIfEmpty();
+                inactivityMonitor.reschedule();
+
+                // 하트비트 모듈: 저장된 친구 쌍 일정 복구 (알람 하나)
+                HeartbeatScheduler.getInstance(this).rescheduleAll();
+
+                // 세션 모듈: 로그인 정보는 CE 저장소라 잠금 해제 후에만
+                if (DirectBootStorage.isUserUnlocked(this)) {
+                    SessionEngine.getInstance(this).start();
+                }
+            });
+        }
+
+        return START_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        Log.d(TAG, "케어 엔진 종료됨");
+
+        unregisterReceiver(screenReceiver);
+        ServiceSupervisor.getInstance(this).onStopped(ServiceSupervisor.SERVICE_CARE_ENGINE);
+
+        // 파이프라인 구독 해제 - 다른 사용자가 없으면 센서 해제 및 활동 기록 저장
+        pipeline.removeListener(pipelineListener);
+        if (started) {
+            started = false;
+            pipeline.release();
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 프로세스가 정리될 수 있으므로 메모리에 남은 활동 기록과 계측값을 미리 저장 (디스크 기록은 작업 스레드에서)
+        MotionPipeline motion = pipeline;
+        PowerStats powerStats = PowerStats.getInstance(this);
+        CareWorker.post(() -> {
+            motion.flush();
+            powerStats.rollup();
+        });
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            if (manager.getNotificationChannel(LEGACY_SESSION_CHANNEL) != null) {
+                manager.deleteNotificationChannel(LEGACY_SESSION_CHANNEL);
+            }
+            if (manager.getNotificationChannel(CHANNEL_ID) != null) {
+                return;
+            }
+
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "안전 모니터링",
+                    NotificationManager.IMPORTANCE_MIN
+            );
+            channel.setDescription("백그라운드에서 안전을 모니터링합니다");
+            channel.setShowBadge(false);  // 알림 배지 제거
+            channel.enableLights(false);  // LED 표시등 비활성화
+            channel.enableVibration(false);  // 진동 비활성화
+            channel.setSound(null, null);  // 알림음 비활성화
+            manager.createNotificationChannel(channel);
+        }
+    }
+
+    private Notification buildNotification() {
+        Intent notificationIntent = new Intent(this, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                this, 0, notificationIntent, PendingIntent.FLAG_IMMUTABLE
+        );
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("안심케어")
+                .setContentText("백그라운드에서 안전을 모니터링 중")
+                .setSmallIcon(android.R.drawable.ic_menu_mylocation)
+                .setContentIntent(pendingIntent)
+                .setPriority(NotificationCompat.PRIORITY_MIN)
+                .setShowWhen(false)  // 시간 표시 비활성화
+                .setOngoing(true)    // 스와이프로 제거 방지 (시스템 서비스임을 명시)
+                .setAutoCancel(false)  // 터치로 자동 제거 방지
+                .setSilent(true)     // 완전히 조용한 알림
+                .setBadgeIconType(NotificationCompat.BADGE_ICON_NONE)  // 배지 아이콘 제거
+                .build();
+    }
+}
@@ -0,0 +1,425 @@
+package com.lonelycare.app;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 네이티브 주기 작업 통합 스케줄러 - 모든 모듈이 OS 알람 하나를 공유한다
+ *
+ * 각 작업은 [earliest, latest] 허용 구간으로 등록한다. 가장 먼저 끝나는 구간(latest)까지
+ * 시작할 수 있는 작업을 모두 모아 그 안의 한 시각에 알람 하나만 걸기 때문에
+ * 구간이 겹치는 작업(하트비트/무활동 마감/세션 갱신)은 한 번 깨어나서 함께 실행된다.
+ *
+ * 깨우기 방식은 함께 실행될 작업 중 가장 강한 것을 따른다.
+ *  - MODE_WAKEUP: 비정확 창 알람 (Doze 중에는 다음 유지보수 창까지 밀릴 수 있음)
+ *  - MODE_IDLE: Doze 중에도 울리는 비정확 알람
+ *  - MODE_EXACT: Doze 중에도 정확히 (권한이 없으면 MODE_IDLE)
+ * 지연 허용 작업(scheduleDeferrable)은 기기를 깨우지 않고 작업 스레드 타이머로만 실행되며,
+ * 그 전에 알람이 울리면 함께 처리된다. 메모리에만 있으므로 프로세스가 죽으면 사라진다.
+ *
+ * 만료 판정은 1분 tick 의 계층형 타이밍 휠(TimingWheel)로 하고, 알람 작업 목록은 기기 보호
+ * 저장소에 남겨 프로세스가 종료된 뒤 알람이 울려도 같은 작업을 실행한다.
+ */
+public class CareScheduler {
+    private static final String TAG = "CareScheduler";
+    private static final String PREF_NAME = "care_scheduler";
+    private static final String KEY_LEGACY_ALARMS_CLEARED = "legacy_alarms_cleared";
+    private static final String TASK_KEY_PREFIX = "task_";
+
+    public static final String ACTION_CARE_ALARM = "com.lonelycare.CARE_ALARM";
+
+    // 작업 ID
+    public static final String TASK_HEARTBEAT = "heartbeat";
+    public static final String TASK_INACTIVITY = "inactivity";
+    public static final String TASK_SESSION = "session";
+    public static final String TASK_MOTION_PROBE = "motion_probe";
+    public static final String TASK_MOTION_QUIET = "motion_quiet";
+    public static final String TASK_POWER_ROLLUP = "power_rollup";
+    public static final String TASK_SERVICE_RESTART = "service_restart";
+
+    // 깨우기 방식 (값이 클수록 강함)
+    public static final int MODE_WAKEUP = 0;
+    public static final int MODE_IDLE = 1;
+    public static final int MODE_EXACT = 2;
+
+    private static final long TICK = 60 * 1000; // 1분
+
+    private static CareScheduler instance;
+
+    public static synchronized CareScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new CareScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private static class Task extends TimingWheel.Node {
+        long earliest;
+        long latest;
+        int mode;
+        // 지연 허용 작업만 가짐 (저장하지 않음)
+        Runnable callback;
+
+        Task(String id) {
+            super(id);
+        }
+    }
+
+    /**
+     * 알람 한 번에 실행된 작업 묶음 - 비동기로 넘긴 작업이 모두 끝나면 완료 콜백 실행
+     * (BroadcastReceiver.goAsync 의 finish 를 마지막 작업이 부르도록)
+     */
+    public static final class Batch {
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final Runnable onDone;
+
+        Batch(Runnable onDone) {
+            this.onDone = onDone;
+        }
+
+        /**
+         * 비동기 작업 하나를 묶음에 추가 - 반환된 Runnable 을 작업이 끝날 때 한 번 호출
+         */
+        public Runnable defer() {
+            pending.incrementAndGet();
+            final AtomicBoolean called = new AtomicBoolean(false);
+            return () -> {
+                if (called.compareAndSet(false, true)) {
+                    done();
+                }
+            };
+        }
+
+        void done() {
+            if (pending.decrementAndGet() == 0 && onDone != null) {
+                onDone.run();
+            }
+        }
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final AlarmManager alarmManager;
+    private final Handler handler;
+
+    private final Map<String, Task> tasks = new HashMap<>();
+    private final TimingWheel wheel;
+
+    // 작업 실행 중에는 모듈이 다시 등록해도 알람은 실행이 끝난 뒤 한 번만 건다
+    private boolean dispatching = false;
+
+    private long armedStart = 0;
+    private long armedLatest = 0;
+    private int armedMode = -1;
+
+    private final Runnable deferredTimer = () -> dispatch(new Batch(null));
+
+    private CareScheduler(Context context) {
+        this.context = context;
+        this.prefs = DirectBootStorage.get(context).getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        this.handler = CareWorker.getHandler();
+        this.wheel = new TimingWheel(System.currentTimeMillis() / TICK);
+        cancelLegacyAlarms();
+        loadTasks();
+        arm();
+    }
+
+    /**
+     * 알람 작업 등록/갱신 - earliest 이후 latest 전까지 아무 때나 실행되면 되는 작업
+     */
+    public synchronized void schedule(String id, long earliest, long latest, int mode) {
+        latest = Math.max(latest, earliest);
+        Task task = tasks.get(id);
+        if (task != null && task.callback == null
+                && task.earliest == earliest && task.latest == latest && task.mode == mode) {
+            return;
+        }
+        put(id, earliest, latest, mode, null);
+        prefs.edit().putString(TASK_KEY_PREFIX + id, earliest + ":" + latest + ":" + mode).apply();
+        PowerStats.count(PowerStats.DISK + PREF_NAME);
+        arm();
+    }
+
+    /**
+     * 기기를 깨우지 않는 메모리 작업 등록 - 작업 스레드에서 callback 실행
+     */
+    public synchronized void scheduleDeferrable(String id, long earliest, long latest, Runnable callback) {
+        put(id, earliest, Math.max(latest, earliest), MODE_WAKEUP, callback);
+        arm();
+    }
+
+    public synchronized void cancel(String id) {
+        Task task = tasks.remove(id);
+        if (task == null) {
+            return;
+        }
+        wheel.remove(task);
+        if (task.callback == null) {
+            prefs.edit().remove(TASK_KEY_PREFIX + id).apply();
+            PowerStats.count(PowerStats.DISK + PREF_NAME);
+        }
+        arm();
+    }
+
+    /**
+     * MODE_EXACT 작업이 정말 정확한 알람으로 걸리는지 (S 이상에서 권한이 없으면 비정확 알람으로 대체됨)
+     */
+    public boolean canScheduleExact() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms();
+    }
+
+    /**
+     * 알람 수신 (CareAlarmReceiver, 작업 스레드) - 시작 시각이 지난 작업을 모두 실행
+     */
+    void onAlarm(Batch batch) {
+        PowerStats.count(PowerStats.WAKEUP + "care_alarm");
+        synchronized (this) {
+            // 울린 알람은 사라졌으므로 같은 시각이라도 다시 걸어야 함
+            armedMode = -1;
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * 실행은 스케줄러 잠금 밖에서 한다 - 모듈이 자기 잠금을 잡은 채 schedule() 을 부르므로
+     * 반대 순서로 잠금을 잡지 않도록
+     */
+    private void dispatch(Batch batch) {
+        List<Task> due;
+        synchronized (this) {
+            handler.removeCallbacks(deferredTimer);
+            due = collectDue(System.currentTimeMillis());
+            dispatching = true;
+        }
+
+        try {
+            for (Task task : due) {
+                try {
+                    run(task, batch);
+                } catch (Exception e) {
+                    Log.e(TAG, "작업 실행 실패: " + task.id, e);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                dispatching = false;
+                arm();
+            }
+        }
+    }
+
+    private List<Task> collectDue(long now) {
+        List<Task> due = new ArrayList<>();
+        SharedPreferences.Editor editor = null;
+        for (TimingWheel.Node node : wheel.advance(now / TICK)) {
+            Task task = (Task) node;
+            if (task.earliest > now) {
+                // 같은 tick 이지만 아직 시작 전 - 다음 실행으로
+                wheel.add(task, task.earliest / TICK);
+                continue;
+            }
+            tasks.remove(task.id);
+            due.add(task);
+            if (task.callback == null) {
+                if (editor == null) {
+                    editor = prefs.edit();
+                }
+                editor.remove(TASK_KEY_PREFIX + task.id);
+            }
+        }
+        if (editor != null) {
+            editor.apply();
+            PowerStats.count(PowerStats.DISK + PREF_NAME);
+        }
+        if (!due.isEmpty()) {
+            Log.d(TAG, "알람 한 번에 작업 " + due.size() + "개 실행 (대기 " + tasks.size() + "개)");
+        }
+        return due;
+    }
+
+    private void run(Task task, Batch batch) {
+        PowerStats.count(PowerStats.TASK + task.id);
+        if (task.callback != null) {
+            task.callback.run();
+            return;
+        }
+        switch (task.id) {
+            case TASK_HEARTBEAT:
+                HeartbeatScheduler.getInstance(context).runDue(batch);
+                break;
+            case TASK_INACTIVITY:
+                InactivityMonitor.getInstance(context).onAlarm(batch);
+                break;
+            case TASK_SESSION:
+                // 로그인 정보는 CE 저장소 - 잠금 해제 후 BootReceiver 가 다시 등록한다
+                if (DirectBootStorage.isUserUnlocked(context)) {
+                    SessionEngine.getInstance(context).onAlarm();
+                }
+                break;
+            case TASK_MOTION_PROBE:
+                MotionPipeline.getInstance(context).onProbeAlarm();
+                break;
+            case TASK_MOTION_QUIET:
+                MotionPipeline.getInstance(context).onQuietAlarm();
+                break;
+            case TASK_SERVICE_RESTART:
+                ServiceSupervisor.getInstance(context).onRestartDue();
+                break;
+            default:
+                Log.w(TAG, "알 수 없는 작업: " + task.id);
+                break;
+        }
+    }
+
+    private void put(String id, long earliest, long latest, int mode, Runnable callback) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = new Task(id);
+            tasks.put(id, task);
+        }
+        task.earliest = earliest;
+        task.latest = latest;
+        task.mode = mode;
+        task.callback = callback;
+        wheel.add(task, earliest / TICK);
+    }
+
+    /**
+     * 가장 먼저 끝나는 구간까지 시작할 수 있는 알람 작업을 모아 알람 하나만 건다
+     */
+    private void arm() {
+        if (dispatching) {
+            return;
+        }
+
+        long latest = Long.MAX_VALUE;
+        long deferredLatest = Long.MAX_VALUE;
+        for (Task task : tasks.values()) {
+            if (task.callback != null) {
+                deferredLatest = Math.min(deferredLatest, task.latest);
+            } else {
+                latest = Math.min(latest, task.latest);
+            }
+        }
+
+        // 지연 허용 작업은 업타임 타이머로 (기기가 잠들어 있으면 깨어난 뒤 실행)
+        handler.removeCallbacks(deferredTimer);
+        if (deferredLatest != Long.MAX_VALUE) {
+            handler.postDelayed(deferredTimer, Math.max(0, deferredLatest - System.currentTimeMillis()));
+        }
+
+        PendingIntent pendingIntent = buildAlarmIntent();
+        if (latest == Long.MAX_VALUE) {
+            if (armedMode >= 0) {
+                alarmManager.cancel(pendingIntent);
+                armedMode = -1;
+                Log.d(TAG, "등록된 작업 없음 - 알람 해제");
+            }
+            return;
+        }
+
+        long start = 0;
+        int mode = MODE_WAKEUP;
+        int batched = 0;
+        for (Task task : tasks.values()) {
+            if (task.callback == null && task.earliest <= latest) {
+                start = Math.max(start, task.earliest);
+                mode = Math.max(mode, task.mode);
+                batched++;
+            }
+        }
+        if (start == armedStart && latest == armedLatest && mode == armedMode) {
+            return;
+        }
+
+        if (mode == MODE_EXACT && canScheduleExact()) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, start, pendingIntent);
+        } else if (mode >= MODE_IDLE) {
+            // 정확한 알람 권한이 없으면 Doze 중에도 울리는 비정확 알람으로 대체
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, start, pendingIntent);
+        } else {
+            alarmManager.setWindow(AlarmManager.RTC_WAKEUP, start, latest - start, pendingIntent);
+        }
+        armedStart = start;
+        armedLatest = latest;
+        armedMode = mode;
+        Log.d(TAG, "다음 알람: " + ((start - System.currentTimeMillis()) / 1000) + "초 후"
+            + " (허용 " + ((latest - start) / 1000) + "초, 작업 " + batched + "개, 방식 " + mode + ")");
+    }
+
+    private PendingIntent buildAlarmIntent() {
+        Intent intent = new Intent(context, CareAlarmReceiver.class);
+        intent.setAction(ACTION_CARE_ALARM);
+        return PendingIntent.getBroadcast(
+            context,
+            0,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+
+    private void loadTasks() {
+        for (Map.Entry<String, ?> item : prefs.getAll().entrySet()) {
+            if (!item.getKey().startsWith(TASK_KEY_PREFIX) || !(item.getValue() instanceof String)) {
+                continue;
+            }
+            String[] parts = ((String) item.getValue()).split(":");
+            try {
+                put(item.getKey().substring(TASK_KEY_PREFIX.length()),
+                    Long.parseLong(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]), null);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "저장된 작업 읽기 실패: " + item.getKey(), e);
+            }
+        }
+        Log.d(TAG, "저장된 작업 " + tasks.size() + "개 로드");
+    }
+
+    /**
+     * 통합 전 모듈별 리시버로 걸려 있던 알람 정리 (한 번만)
+     */
+    private void cancelLegacyAlarms() {
+        if (prefs.getBoolean(KEY_LEGACY_ALARMS_CLEARED, false)) {
+            return;
+        }
+        cancelLegacyAlarm(context, "HeartbeatReceiver", HeartbeatScheduler.ACTION_HEARTBEAT_ALARM, 0);
+        cancelLegacyAlarm(context, "InactivityAlarmReceiver", "com.lonelycare.INACTIVITY_ALARM", 0);
+        cancelLegacyAlarm(context, "SessionCheckReceiver", null, 0);
+        prefs.edit().putBoolean(KEY_LEGACY_ALARMS_CLEARED, true).apply();
+    }
+
+    /**
+     * 삭제된 리시버 클래스로 걸린 알람 해제 (클래스가 없으므로 이름으로 같은 PendingIntent 를 찾음)
+     */
+    static void cancelLegacyAlarm(Context context, String receiverName, String action, int requestCode) {
+        Intent intent = new Intent();
+        intent.setClassName(context, CareScheduler.class.getPackage().getName() + "." + receiverName);
+        if (action != null) {
+            intent.setAction(action);
+        }
+        PendingIntent legacy = PendingIntent.getBroadcast(
+            context,
+            requestCode,
+            intent,
+            PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+        );
+        if (legacy != null) {
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            alarmManager.cancel(legacy);
+            legacy.cancel();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.lonelycare.app;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * 케어 엔진 공용 작업 스레드
+ *
+ * 센서 이벤트 처리, 알람 수신 후 작업(하트비트/무활동/부팅 복구)을 모두 이 스레드 하나에서
+ * 순서대로 실행한다. 모듈 간 상태 변경이 겹치지 않으므로 별도 동기화 순서를 신경 쓸 필요가 없다.
+ * 네트워크처럼 오래 막히는 작업은 올리지 않는다 (업로더는 자체 스레드 사용).
+ */
+public final class CareWorker {
+    private static Handler handler;
+
+    private CareWorker() {
+    }
+
+    public static synchronized Handler getHandler() {
+        if (handler == null) {
+            // 프로세스 수명 동안 유지 (대기 중에는 비용 없음)
+            HandlerThread thread = new HandlerThread("CareEngineThread", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+
+    public static void post(Runnable task) {
+        getHandler().post(task);
+    }
+}
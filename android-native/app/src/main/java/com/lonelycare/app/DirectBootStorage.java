@@ -0,0 +1,218 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.UserManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 재부팅 후 첫 잠금 해제 전에도 모니터링을 이어가기 위한 기기 보호(DE) 저장소
+ *
+ * 움직임/무활동/하트비트 스케줄 상태만 DE 저장소에 둔다.
+ * 세션·로그인·업로드 토큰처럼 민감한 값은 기존 자격 증명(CE) 저장소에 그대로 남긴다.
+ *
+ * 이전 버전은 모두 CE 저장소에 있었으므로 잠금 해제 후 처음 접근할 때 한 번만 옮긴다.
+ * 잠금 상태에서 먼저 시작된 프로세스는 잠금이 풀린 뒤의 첫 get() 에서 옮긴다.
+ * 잠금 상태에서 DE 쪽이 먼저 만들어졌으면 건너뛰지 않고 합친다.
+ *  - 설정: DE 에 없는 키만 CE 값으로 채움 (잠금 상태에서 쓴 값이 더 최근)
+ *  - 파일: DE 에 같은 이름이 있으면 이름 + CREDENTIAL_COPY_SUFFIX 로 복사해 두고,
+ *    주인 클래스(FriendPairRegistry, ActivityTimeline)가 생성 시와 addMigrationListener 콜백에서 합친다
+ */
+public final class DirectBootStorage {
+    private static final String TAG = "DirectBootStorage";
+
+    private static final String PREF_NAME = "direct_boot_storage";
+    private static final String KEY_MIGRATED = "migrated";
+
+    // DE 에 이미 있던 파일과 겹친 CE 파일의 복사본 이름 접미사
+    public static final String CREDENTIAL_COPY_SUFFIX = ".ce";
+
+    // DE 로 옮기는 SharedPreferences / 파일 (filesDir 기준)
+    private static final String[] PREFS = {"motion_detection", "inactivity_monitor", "heartbeat_prefs"};
+    private static final String[] FILES = {"friend_pairs.bin", "timeline"};
+
+    private static Context storageContext;
+    private static Context credentialContext;
+    private static boolean migrated = false;
+    private static final List<Runnable> migrationListeners = new ArrayList<>();
+
+    private DirectBootStorage() {
+    }
+
+    /**
+     * 모니터링 상태를 읽고 쓸 컨텍스트 (N 미만은 앱 컨텍스트 그대로)
+     * 아직 옮기지 않았고 잠금이 풀렸으면 먼저 CE 데이터를 옮긴다
+     */
+    public static Context get(Context context) {
+        List<Runnable> listeners;
+        synchronized (DirectBootStorage.class) {
+            if (storageContext == null) {
+                Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+                    storageContext = appContext;
+                    migrated = true;
+                    return storageContext;
+                }
+                credentialContext = appContext;
+                storageContext = appContext.createDeviceProtectedStorageContext();
+            }
+            if (migrated || !isUserUnlocked(credentialContext)) {
+                return storageContext;
+            }
+            migrate(credentialContext, storageContext);
+            migrated = true;
+            listeners = new ArrayList<>(migrationListeners);
+            migrationListeners.clear();
+        }
+        // 주인 클래스의 잠금을 잡은 채 이 클래스를 부르는 경우가 있으므로 잠금 밖에서 실행
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        return storageContext;
+    }
+
+    /**
+     * 잠금 상태에서 만든 DE 데이터에 CE 데이터가 합쳐진 직후 실행 (이미 옮겼으면 등록하지 않음)
+     */
+    public static synchronized void addMigrationListener(Runnable listener) {
+        if (!migrated) {
+            migrationListeners.add(listener);
+        }
+    }
+
+    /**
+     * 첫 잠금 해제가 끝났는지 (CE 저장소 접근 가능 여부)
+     */
+    public static boolean isUserUnlocked(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return true;
+        }
+        UserManager userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        return userManager == null || userManager.isUserUnlocked();
+    }
+
+    private static void migrate(Context credentialContext, Context deviceContext) {
+        SharedPreferences state = deviceContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        if (state.getBoolean(KEY_MIGRATED, false)) {
+            return;
+        }
+
+        int moved = 0;
+        File credentialPrefs = new File(credentialContext.getDataDir(), "shared_prefs");
+        for (String name : PREFS) {
+            if (!new File(credentialPrefs, name + ".xml").exists()) {
+                continue;
+            }
+            // 파일 이동 대신 키 단위로 합침 - 잠금 상태에서 이미 열린 DE 설정 객체도 합친 값을 보게 됨
+            SharedPreferences source = credentialContext.getSharedPreferences(name, Context.MODE_PRIVATE);
+            SharedPreferences target = deviceContext.getSharedPreferences(name, Context.MODE_PRIVATE);
+            if (mergePrefs(source, target) && credentialContext.deleteSharedPreferences(name)) {
+                moved++;
+            } else {
+                Log.w(TAG, "설정 이전 실패: " + name);
+            }
+        }
+        for (String name : FILES) {
+            File source = new File(credentialContext.getFilesDir(), name);
+            if (!source.exists()) {
+                continue;
+            }
+            // 암호화 정책이 달라 rename 은 실패하므로 복사 후 삭제
+            try {
+                copy(source, new File(deviceContext.getFilesDir(), name));
+                delete(source);
+                moved++;
+            } catch (IOException e) {
+                // 원본은 남겨 두고 다음 프로세스에서 다시 시도
+                Log.w(TAG, "파일 이전 실패: " + name, e);
+                return;
+            }
+        }
+
+        state.edit()
+            .putBoolean(KEY_MIGRATED, true)
+            .apply();
+        Log.d(TAG, "기기 보호 저장소로 이전 완료: " + moved + "개 항목");
+    }
+
+    /**
+     * target 에 없는 키만 source 값으로 채움 (CE 원본을 지우기 전에 디스크 반영)
+     */
+    private static boolean mergePrefs(SharedPreferences source, SharedPreferences target) {
+        SharedPreferences.Editor editor = target.edit();
+        for (Map.Entry<String, ?> entry : source.getAll().entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (target.contains(key)) {
+                continue;
+            }
+            if (value instanceof Boolean) {
+                editor.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Integer) {
+                editor.putInt(key, (Integer) value);
+            } else if (value instanceof Long) {
+                editor.putLong(key, (Long) value);
+            } else if (value instanceof Float) {
+                editor.putFloat(key, (Float) value);
+            } else if (value instanceof String) {
+                editor.putString(key, (String) value);
+            } else if (value instanceof Set) {
+                @SuppressWarnings("unchecked")
+                Set<String> values = (Set<String>) value;
+                editor.putStringSet(key, values);
+            }
+        }
+        return editor.commit();
+    }
+
+    /**
+     * source 를 target 으로 복사 - 디렉터리는 합치고, 이미 있는 파일은 CE 복사본 이름으로 둔다
+     */
+    private static void copy(File source, File target) throws IOException {
+        if (source.isDirectory()) {
+            if (!target.isDirectory() && !target.mkdirs()) {
+                throw new IOException("디렉터리 생성 실패: " + target);
+            }
+            File[] children = source.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    copy(child, new File(target, child.getName()));
+                }
+            }
+            return;
+        }
+        if (target.exists()) {
+            target = new File(target.getPath() + CREDENTIAL_COPY_SUFFIX);
+        }
+        byte[] buffer = new byte[8192];
+        try (FileInputStream in = new FileInputStream(source); FileOutputStream out = new FileOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.getFD().sync();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "삭제 실패: " + file);
+        }
+    }
+}
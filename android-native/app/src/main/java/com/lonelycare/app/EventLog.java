@@ -0,0 +1,263 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.os.Handler;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 화면(WebView)이 없을 때 일어난 일을 보관하는 이벤트 기록 - 페이지가 붙을 때 빠진 것만 따라잡기
+ *
+ * FCM 알림, 하트비트 실행, 움직임 요약을 순번(seq)과 함께 최근 MAX_EVENTS 개까지 보관한다.
+ * 실시간으로 WebView 에 보낸 이벤트에도 같은 순번이 붙으므로, JS 는 마지막으로 본 순번만 기억했다가
+ * 페이지가 붙을 때 AndroidBridge.getEventsSince(seq) 로 그 뒤의 것만 한 번에 받는다 (심이 자동 실행).
+ * 요청한 순번 이후가 이미 밀려났으면 truncated 를 알려 그때만 전체 새로고침하도록 한다.
+ *
+ * 친구 이름 등이 들어 있으므로 자격 증명(CE) 저장소에 둔다. 첫 잠금 해제 전에 쌓인 기록은
+ * 메모리에 두었다가 잠금 해제 후 파일 내용 뒤에 이어 붙인다.
+ * 기록은 COMMIT_DELAY 동안 모아 AtomicFile 로 한 번에 다시 쓴다.
+ */
+public class EventLog {
+    private static final String TAG = "EventLog";
+    private static final String FILE_NAME = "event_log.bin";
+    private static final int MAGIC = 0x4C43454C; // "LCEL"
+    private static final int VERSION = 1;
+
+    private static final int MAX_EVENTS = 200;
+    private static final long MAX_AGE = 48 * 60 * 60 * 1000L;
+    // writeUTF 한도 안쪽, 넘는 데이터는 기록하지 않음 (실시간 전달은 그대로)
+    private static final int MAX_DATA_LENGTH = 16 * 1024;
+    private static final long COMMIT_DELAY = 1000;
+
+    private static final class Entry {
+        final long seq;
+        final String type;
+        final long time;
+        final String data;
+
+        Entry(long seq, String type, long time, String data) {
+            this.seq = seq;
+            this.type = type;
+            this.time = time;
+            this.data = data;
+        }
+    }
+
+    private static EventLog instance;
+
+    public static synchronized EventLog getInstance(Context context) {
+        if (instance == null) {
+            instance = new EventLog(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final File file;
+    private final AtomicFile atomicFile;
+    private final Handler handler = CareWorker.getHandler();
+
+    private final List<Entry> entries = new ArrayList<>();
+    private long nextSeq = 1;
+    private boolean loaded = false;
+    private boolean dirty = false;
+    private boolean commitScheduled = false;
+
+    private final Runnable commitTask = this::commit;
+
+    private EventLog(Context context) {
+        this.context = context;
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        this.atomicFile = new AtomicFile(file);
+    }
+
+    /**
+     * 이벤트 기록 (모두 보관) - 붙은 순번 반환, 실시간 전달은 호출한 쪽에서
+     */
+    public synchronized long append(String type, String data) {
+        return add(type, data, false);
+    }
+
+    /**
+     * 최신 값만 의미 있는 이벤트 기록 - 같은 종류의 이전 기록은 지움
+     */
+    public synchronized long appendLatest(String type, String data) {
+        return add(type, data, true);
+    }
+
+    /**
+     * 기록 후 WebView 에도 바로 전달 (페이지가 없으면 기록만 남음)
+     */
+    public void publish(String type, String data) {
+        WebEventBus.getInstance().send(type, data, append(type, data));
+    }
+
+    public void publishLatest(String type, String data) {
+        WebEventBus.getInstance().sendLatest(type, data, appendLatest(type, data));
+    }
+
+    /**
+     * afterSeq 이후 이벤트를 최대 max 개 (JSON)
+     * {"last": 마지막 순번, "truncated": 빠진 기록이 있음, "events": [{seq, type, time, data}, ...]}
+     */
+    public synchronized String since(long afterSeq, int max) {
+        ensureLoaded();
+        prune(System.currentTimeMillis());
+        long last = nextSeq - 1;
+        // 기록이 초기화되어 JS 가 더 큰 순번을 들고 있으면 처음부터
+        if (afterSeq > last) {
+            afterSeq = 0;
+        }
+        long oldest = entries.isEmpty() ? nextSeq : entries.get(0).seq;
+        boolean truncated = afterSeq < oldest - 1;
+
+        StringBuilder events = new StringBuilder("[");
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.seq <= afterSeq) {
+                continue;
+            }
+            if (count == max) {
+                truncated = true;
+                break;
+            }
+            if (count++ > 0) {
+                events.append(',');
+            }
+            events.append("{\"seq\":").append(entry.seq)
+                .append(",\"type\":").append(JSONObject.quote(entry.type))
+                .append(",\"time\":").append(entry.time)
+                .append(",\"data\":").append(entry.data).append('}');
+        }
+        events.append(']');
+        return "{\"last\":" + last + ",\"truncated\":" + truncated + ",\"events\":" + events + "}";
+    }
+
+    private long add(String type, String data, boolean latest) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        if (data == null) {
+            data = "null";
+        }
+        long seq = nextSeq++;
+        if (data.length() > MAX_DATA_LENGTH) {
+            Log.w(TAG, "기록하기에 너무 큰 이벤트: " + type + " (" + data.length() + "자)");
+            return seq;
+        }
+        if (latest) {
+            Iterator<Entry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().type.equals(type)) {
+                    iterator.remove();
+                }
+            }
+        }
+        entries.add(new Entry(seq, type, now, data));
+        prune(now);
+        dirty = true;
+        if (!commitScheduled) {
+            commitScheduled = true;
+            handler.postDelayed(commitTask, COMMIT_DELAY);
+        }
+        return seq;
+    }
+
+    private void prune(long now) {
+        while (!entries.isEmpty()
+            && (entries.size() > MAX_EVENTS || now - entries.get(0).time > MAX_AGE)) {
+            entries.remove(0);
+        }
+    }
+
+    /**
+     * 모인 기록을 파일에 한 번에 반영 (CareWorker 스레드)
+     */
+    private synchronized void commit() {
+        commitScheduled = false;
+        ensureLoaded();
+        if (!dirty || !loaded) {
+            // 첫 잠금 해제 전 - 다음 기록 때 다시 시도
+            return;
+        }
+        FileOutputStream stream = null;
+        try {
+            stream = atomicFile.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(nextSeq);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeLong(entry.seq);
+                out.writeUTF(entry.type);
+                out.writeLong(entry.time);
+                out.writeUTF(entry.data);
+            }
+            out.flush();
+            atomicFile.finishWrite(stream);
+            PowerStats.count(PowerStats.DISK + "event_log");
+            dirty = false;
+        } catch (IOException e) {
+            Log.e(TAG, "이벤트 기록 쓰기 실패", e);
+            if (stream != null) {
+                atomicFile.failWrite(stream);
+            }
+        }
+    }
+
+    /**
+     * CE 저장소를 읽을 수 있게 되면 한 번 읽고, 그 전에 쌓인 기록은 뒤에 순번을 새로 매겨 붙임
+     * (잠금 해제 전에는 화면이 없으므로 그 순번을 본 JS 가 없음)
+     */
+    private void ensureLoaded() {
+        if (loaded || !DirectBootStorage.isUserUnlocked(context)) {
+            return;
+        }
+        loaded = true;
+        List<Entry> early = new ArrayList<>(entries);
+        entries.clear();
+        nextSeq = 1;
+        load();
+        for (Entry entry : early) {
+            entries.add(new Entry(nextSeq++, entry.type, entry.time, entry.data));
+        }
+        if (!early.isEmpty()) {
+            dirty = true;
+        }
+    }
+
+    private void load() {
+        if (!file.exists() && !new File(file.getPath() + ".bak").exists()) {
+            return;
+        }
+        // AtomicFile 로 열어야 쓰기 도중 종료된 경우 백업본으로 복구된다
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(atomicFile.openRead()))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                Log.w(TAG, "이벤트 기록 파일 형식 불일치 - 무시");
+                return;
+            }
+            nextSeq = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                entries.add(new Entry(in.readLong(), in.readUTF(), in.readLong(), in.readUTF()));
+            }
+        } catch (EOFException e) {
+            Log.w(TAG, "이벤트 기록 파일이 중간에 끊김 - 읽은 데까지만 사용");
+        } catch (IOException e) {
+            Log.e(TAG, "이벤트 기록 읽기 실패", e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 친구 쌍(pairId → delaySeconds) 저장소
+ *
+ * 파일 형식: 헤더(magic int + version byte) 뒤에 변경 기록이 이어 붙는 로그
+ *  - UPSERT: op byte + pairId(writeUTF) + delaySeconds int
+ *  - DELETE: op byte + pairId(writeUTF)
+ *
+ * 시작 시 한 번만 읽어 메모리 인덱스를 만들고, 이후 변경은 해당 기록만 덧붙인다.
+ * 죽은 기록이 살아있는 항목보다 많아지면 AtomicFile 로 한 번에 다시 쓴다(압축).
+ * pairId 는 길이 접두 문자열로 저장하므로 ':' ';' 같은 문자도 안전하다.
+ * 잠금 상태에서 먼저 만들어진 뒤 잠금 해제로 옮겨진 이전 데이터(CE 복사본, 이전 문자열)는 합친다.
+ */
+public class FriendPairRegistry {
+    private static final String TAG = "FriendPairRegistry";
+
+    private static final String FILE_NAME = "friend_pairs.bin";
+    private static final int MAGIC = 0x4C434650; // "LCFP"
+    private static final byte VERSION = 1;
+
+    private static final byte OP_UPSERT = 1;
+    private static final byte OP_DELETE = 2;
+
+    // 이전 버전의 "id:delay;id:delay" 문자열 (최초 로드 시 이전 후 삭제)
+    private static final String LEGACY_PREF_NAME = "heartbeat_prefs";
+    private static final String LEGACY_KEY_FRIEND_PAIRS = "friend_pairs";
+
+    // 로그 기록 수가 살아있는 항목의 2배 + 이 값을 넘으면 압축
+    private static final int COMPACT_SLACK = 64;
+
+    private final File file;
+    private final AtomicFile atomicFile;
+    private final Map<String, Integer> pairs = new LinkedHashMap<>();
+    private int logRecords = 0;
+
+    public FriendPairRegistry(Context context) {
+        this(new File(DirectBootStorage.get(context).getFilesDir(), FILE_NAME));
+        final Context storage = DirectBootStorage.get(context);
+        // 잠금 상태에서 만들어졌으면 잠금 해제 후 옮겨진 CE 데이터를 다시 합침
+        DirectBootStorage.addMigrationListener(() -> {
+            mergeCredentialCopy();
+            migrateLegacy(storage);
+        });
+        mergeCredentialCopy();
+        migrateLegacy(storage);
+    }
+
+    private FriendPairRegistry(File file) {
+        this.file = file;
+        this.atomicFile = new AtomicFile(file);
+        load();
+    }
+
+    public synchronized Map<String, Integer> getAll() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(pairs));
+    }
+
+    public synchronized int size() {
+        return pairs.size();
+    }
+
+    /**
+     * 친구 쌍 추가/갱신 - 값이 같으면 기록하지 않음
+     *
+     * @return 변경이 있었으면 true
+     */
+    public synchronized boolean put(String pairId, int delaySeconds) {
+        Map<String, Integer> batch = new LinkedHashMap<>();
+        batch.put(pairId, delaySeconds);
+        return putAll(batch) > 0;
+    }
+
+    /**
+     * 여러 친구 쌍을 한 번의 쓰기로 추가/갱신
+     *
+     * @return 실제로 바뀐 항목 수
+     */
+    public synchronized int putAll(Map<String, Integer> batch) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int changed = 0;
+        try {
+            for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+                Integer previous = pairs.get(entry.getKey());
+                if (previous != null && previous.intValue() == entry.getValue().intValue()) {
+                    continue;
+                }
+                pairs.put(entry.getKey(), entry.getValue());
+                writeUpsert(out, entry.getKey(), entry.getValue());
+                changed++;
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream 에서는 발생하지 않음
+            Log.e(TAG, "친구 쌍 기록 직렬화 실패", e);
+        }
+        if (changed > 0) {
+            append(bytes.toByteArray(), changed);
+        }
+        return changed;
+    }
+
+    /**
+     * 친구 쌍 삭제
+     *
+     * @return 삭제된 항목이 있었으면 true
+     */
+    public synchronized boolean remove(String pairId) {
+        if (!pairs.containsKey(pairId)) {
+            return false;
+        }
+        pairs.remove(pairId);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(OP_DELETE);
+            out.writeUTF(pairId);
+        } catch (IOException e) {
+            Log.e(TAG, "친구 쌍 삭제 직렬화 실패", e);
+        }
+        append(bytes.toByteArray(), 1);
+        return true;
+    }
+
+    private static void writeUpsert(DataOutputStream out, String pairId, int delaySeconds) throws IOException {
+        out.writeByte(OP_UPSERT);
+        out.writeUTF(pairId);
+        out.writeInt(delaySeconds);
+    }
+
+    /**
+     * 변경 기록 덧붙이기 (필요하면 압축)
+     */
+    private void append(byte[] records, int count) {
+        logRecords += count;
+        if (!file.exists() || logRecords > pairs.size() * 2 + COMPACT_SLACK) {
+            compact();
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(records);
+            out.getFD().sync();
+            PowerStats.count(PowerStats.DISK + "friend_pairs");
+        } catch (IOException e) {
+            Log.e(TAG, "친구 쌍 기록 추가 실패 - 전체 다시 쓰기", e);
+            compact();
+        }
+    }
+
+    /**
+     * 살아있는 항목만으로 파일을 원자적으로 다시 쓴다
+     */
+    private void compact() {
+        FileOutputStream stream = null;
+        try {
+            stream = atomicFile.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            for (Map.Entry<String, Integer> entry : pairs.entrySet()) {
+                writeUpsert(out, entry.getKey(), entry.getValue());
+            }
+            out.flush();
+            atomicFile.finishWrite(stream);
+            PowerStats.count(PowerStats.DISK + "friend_pairs");
+            logRecords = pairs.size();
+        } catch (IOException e) {
+            Log.e(TAG, "친구 쌍 파일 쓰기 실패", e);
+            if (stream != null) {
+                atomicFile.failWrite(stream);
+            }
+        }
+    }
+
+    private void load() {
+        if (!file.exists() && !new File(file.getPath() + ".bak").exists()) {
+            return;
+        }
+        boolean truncated = false;
+        // AtomicFile 로 열어야 압축 도중 종료된 경우 백업본으로 복구된다
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(atomicFile.openRead()))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                Log.w(TAG, "친구 쌍 파일 형식 불일치 - 무시");
+                return;
+            }
+            while (true) {
+                int op = in.read();
+                if (op < 0) {
+                    break;
+                }
+                try {
+                    String pairId = in.readUTF();
+                    if (op == OP_UPSERT) {
+                        pairs.put(pairId, in.readInt());
+                    } else if (op == OP_DELETE) {
+                        pairs.remove(pairId);
+                    } else {
+                        truncated = true;
+                        break;
+                    }
+                    logRecords++;
+                } catch (EOFException e) {
+                    // 기록 도중 종료된 마지막 항목
+                    truncated = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "친구 쌍 파일 읽기 실패", e);
+            truncated = true;
+        }
+
+        if (truncated) {
+            // 깨진 꼬리를 잘라내고 정상 항목만 다시 기록
+            compact();
+        }
+        Log.d(TAG, "친구 쌍 " + pairs.size() + "개 로드 (기록 " + logRecords + "개)");
+    }
+
+    /**
+     * DE 파일이 이미 있어 따로 복사된 CE 파일의 항목 중 없는 것만 추가하고 삭제
+     */
+    private void mergeCredentialCopy() {
+        File copy = new File(file.getPath() + DirectBootStorage.CREDENTIAL_COPY_SUFFIX);
+        if (!copy.exists()) {
+            return;
+        }
+        Map<String, Integer> batch = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, Integer> entry : new FriendPairRegistry(copy).getAll().entrySet()) {
+                if (!pairs.containsKey(entry.getKey())) {
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+            }
+            putAll(batch);
+        }
+        if (!copy.delete()) {
+            Log.w(TAG, "CE 복사본 삭제 실패: " + copy);
+        }
+        Log.d(TAG, "잠금 해제 전 친구 쌍 파일에 CE 항목 " + batch.size() + "개 합침");
+    }
+
+    /**
+     * SharedPreferences 의 구분자 문자열을 한 번만 옮기고 삭제
+     */
+    private void migrateLegacy(Context context) {
+        SharedPreferences legacy = context.getSharedPreferences(LEGACY_PREF_NAME, Context.MODE_PRIVATE);
+        String saved = legacy.getString(LEGACY_KEY_FRIEND_PAIRS, "");
+        if (saved.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> batch = new LinkedHashMap<>();
+        for (String item : saved.split(";")) {
+            String[] parts = item.split(":");
+            if (parts.length == 2) {
+                try {
+                    batch.put(parts[0], Integer.parseInt(parts[1]));
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "이전 친구 쌍 항목 무시: " + item);
+                }
+            }
+        }
+        putAll(batch);
+        legacy.edit().remove(LEGACY_KEY_FRIEND_PAIRS).apply();
+        Log.d(TAG, "이전 친구 쌍 " + batch.size() + "개 이전 완료");
+    }
+}
@@ -0,0 +1,392 @@
+package com.lonelycare.app;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * 모든 친구 쌍의 하트비트를 알람 하나로 처리하는 스케줄러
+ *
+ * 친구 쌍마다 반복 알람을 거는 대신 다음 실행 시각 순으로 정렬된 일정을 메모리에 두고
+ * 가장 이른 시각 하나만 CareScheduler 에 작업으로 등록한다. 알람이 울리면 BATCH_WINDOW 안에
+ * 도래하는 친구 쌍을 한 번에 꺼내 처리하므로 친구 수와 관계없이 한 시간에 한 번만 깨어난다.
+ *
+ * 분산 모드(기본): 모든 기기가 정시에 몰리지 않도록 설치별 고정 키의 해시로 한 시간 안의
+ * 슬롯을 정하고, 회차마다 결정적인 ±MAX_JITTER 지터를 더한다. 회차는 시간 단위로 고정되어
+ * 있으므로 각 친구 쌍은 매 시간 정확히 한 번씩 전송된다 (간격 1시간 ± 2 x MAX_JITTER).
+ * 정렬 모드: 기존처럼 정시 + delaySeconds.
+ */
+public class HeartbeatScheduler {
+    private static final String TAG = "HeartbeatScheduler";
+    private static final String PREF_NAME = "heartbeat_prefs";
+    private static final String KEY_LAST_BATCH_TIME = "last_batch_time";
+    private static final String KEY_LEGACY_ALARMS_CLEARED = "legacy_alarms_cleared";
+    private static final String KEY_STAGGERED = "staggered";
+    private static final String KEY_STAGGER_KEY = "stagger_key";
+
+    // 통합 전 HeartbeatReceiver 알람 액션 (남은 알람 정리용)
+    static final String ACTION_HEARTBEAT_ALARM = "HEARTBEAT_ALARM";
+
+    private static final long INTERVAL = AlarmManager.INTERVAL_HOUR;
+
+    // 알람 한 번에 함께 처리할 범위 (알람 지연 허용 폭으로도 사용)
+    private static final long BATCH_WINDOW = 2 * 60 * 1000; // 2분
+
+    // 회차별 지터 최대 폭 (슬롯은 이 폭만큼 시간 경계에서 떨어뜨려 회차가 섞이지 않게 함)
+    private static final long MAX_JITTER = 60 * 1000; // ±1분
+
+    private static HeartbeatScheduler instance;
+
+    public static synchronized HeartbeatScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new HeartbeatScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private static class Entry {
+        final String pairId;
+        int delaySeconds;
+        long nextDue;
+
+        Entry(String pairId, int delaySeconds) {
+            this.pairId = pairId;
+            this.delaySeconds = delaySeconds;
+        }
+    }
+
+    private static final Comparator<Entry> BY_DUE_TIME = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            if (a.nextDue != b.nextDue) {
+                return a.nextDue < b.nextDue ? -1 : 1;
+            }
+            return a.pairId.compareTo(b.pairId);
+        }
+    };
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final FriendPairRegistry registry;
+
+    private boolean staggered;
+    private long staggerHash;
+    private long slotOffset;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> schedule = new TreeSet<>(BY_DUE_TIME);
+    private long armedTime = 0;
+
+    private HeartbeatScheduler(Context context) {
+        this.context = context;
+        this.prefs = DirectBootStorage.get(context).getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.registry = new FriendPairRegistry(context);
+        this.staggered = prefs.getBoolean(KEY_STAGGERED, true);
+        initStaggerSlot();
+        loadPairs();
+        armNext();
+    }
+
+    /**
+     * 친구 쌍 등록/갱신 - 일정에 넣고 필요하면 알람을 앞당긴다
+     */
+    public synchronized void schedule(String pairId, int delaySeconds) {
+        Log.d(TAG, "하트비트 스케줄링: " + pairId + " (지연: " + delaySeconds + "초)");
+
+        Map<String, Integer> batch = new HashMap<>();
+        batch.put(pairId, delaySeconds);
+        scheduleAll(batch);
+    }
+
+    /**
+     * 여러 친구 쌍을 한 번에 등록/갱신 (저장은 한 번, 알람도 한 번만 조정)
+     *
+     * @return 새로 추가되거나 주기가 바뀐 친구 쌍 수
+     */
+    public synchronized int scheduleAll(Map<String, Integer> batch) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Integer> item : batch.entrySet()) {
+            String pairId = item.getKey();
+            int delaySeconds = item.getValue();
+
+            Entry entry = entries.get(pairId);
+            if (entry == null) {
+                entry = new Entry(pairId, delaySeconds);
+                entries.put(pairId, entry);
+            } else if (entry.delaySeconds == delaySeconds) {
+                // 이미 같은 일정으로 등록됨 - 다음 회차 유지
+                continue;
+            } else {
+                schedule.remove(entry);
+                entry.delaySeconds = delaySeconds;
+            }
+            entry.nextDue = nextDueTime(delaySeconds, now);
+            schedule.add(entry);
+        }
+
+        int changed = registry.putAll(batch);
+        armNext();
+        return changed;
+    }
+
+    /**
+     * 친구 쌍 삭제 (친구 해제 등)
+     */
+    public synchronized void unschedule(String pairId) {
+        Entry entry = entries.remove(pairId);
+        if (entry == null) {
+            return;
+        }
+        schedule.remove(entry);
+        registry.remove(pairId);
+        armNext();
+        Log.d(TAG, "하트비트 스케줄 삭제: " + pairId);
+    }
+
+    /**
+     * 알람 수신 시 호출 - 지금부터 BATCH_WINDOW 안에 도래하는 친구 쌍을 모두 꺼내고 다음 알람 등록
+     */
+    public synchronized List<String> collectDue(long now) {
+        List<String> due = new ArrayList<>();
+        List<Entry> advanced = new ArrayList<>();
+
+        while (!schedule.isEmpty() && schedule.first().nextDue <= now + BATCH_WINDOW) {
+            Entry entry = schedule.pollFirst();
+            due.add(entry.pairId);
+
+            // 주기를 유지한 채 다음 회차로 (밀린 회차는 건너뜀)
+            entry.nextDue = nextDueTime(entry.delaySeconds, Math.max(entry.nextDue, now + BATCH_WINDOW));
+            advanced.add(entry);
+        }
+        schedule.addAll(advanced);
+
+        // 프로세스가 재시작돼도 이미 처리한 회차를 다시 보내지 않도록 기록
+        prefs.edit().putLong(KEY_LAST_BATCH_TIME, now + BATCH_WINDOW).apply();
+        PowerStats.count(PowerStats.DISK + PREF_NAME);
+
+        armedTime = 0;
+        armNext();
+
+        Log.d(TAG, "하트비트 일괄 처리: " + due.size() + "/" + entries.size() + "개 친구 쌍");
+        return due;
+    }
+
+    /**
+     * 저장된 친구 쌍 전체를 다시 계산해 알람 재등록 (재부팅 후 등)
+     */
+    public synchronized void rescheduleAll() {
+        long now = System.currentTimeMillis();
+        // 마지막 일괄 처리가 이미 덮은 범위(기록은 now + BATCH_WINDOW 까지)의 슬롯은 다시 잡지 않음
+        long after = Math.max(now, lastBatchTime(now));
+        schedule.clear();
+        for (Entry entry : entries.values()) {
+            entry.nextDue = nextDueTime(entry.delaySeconds, after);
+            schedule.add(entry);
+        }
+        armedTime = 0;
+        armNext();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 분산 모드 켜기/끄기 - 바뀌면 전체 일정 재계산
+     */
+    public synchronized void setStaggered(boolean enabled) {
+        if (staggered == enabled) {
+            return;
+        }
+        staggered = enabled;
+        prefs.edit().putBoolean(KEY_STAGGERED, enabled).apply();
+        Log.d(TAG, "하트비트 분산 모드: " + enabled);
+        rescheduleAll();
+    }
+
+    /**
+     * JS 에 노출할 현재 슬롯 정보
+     */
+    public synchronized String getSlotInfo() {
+        return "{\"mode\":\"" + (staggered ? "staggered" : "aligned") + "\"" +
+            ",\"intervalSeconds\":" + (INTERVAL / 1000) +
+            ",\"slotSeconds\":" + (slotOffset / 1000) +
+            ",\"maxJitterSeconds\":" + (MAX_JITTER / 1000) +
+            ",\"nextDue\":" + armedTime +
+            ",\"pairs\":" + entries.size() + "}";
+    }
+
+    /**
+     * 설치별 고정 키로 한 시간 안의 슬롯을 정한다 (기기마다 다르고 재시작해도 같음)
+     */
+    private void initStaggerSlot() {
+        String key = prefs.getString(KEY_STAGGER_KEY, null);
+        if (key == null) {
+            key = UUID.randomUUID().toString();
+            prefs.edit().putString(KEY_STAGGER_KEY, key).apply();
+        }
+        staggerHash = mix(key.hashCode());
+        long span = INTERVAL - 2 * MAX_JITTER;
+        slotOffset = MAX_JITTER + ((staggerHash >>> 1) % span);
+    }
+
+    private long nextDueTime(int delaySeconds, long after) {
+        return staggered ? nextStaggeredTime(after) : nextAlignedTime(delaySeconds, after);
+    }
+
+    /**
+     * after 이후 첫 "회차 시작 + 슬롯 + 회차별 지터" 시각
+     */
+    private long nextStaggeredTime(long after) {
+        long cycleStart = (after / INTERVAL) * INTERVAL;
+        while (true) {
+            long cycle = cycleStart / INTERVAL;
+            long jitter = ((mix(staggerHash ^ cycle) >>> 1) % (2 * MAX_JITTER + 1)) - MAX_JITTER;
+            long time = cycleStart + slotOffset + jitter;
+            if (time > after) {
+                return time;
+            }
+            cycleStart += INTERVAL;
+        }
+    }
+
+    /**
+     * splitmix64 - 해시 값을 고르게 섞는다
+     */
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * after 이후 첫 "정시 + delaySeconds" 시각 (기존 친구 쌍별 알람과 같은 시각)
+     */
+    private static long nextAlignedTime(int delaySeconds, long after) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(after);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, delaySeconds);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long time = calendar.getTimeInMillis();
+        while (time <= after) {
+            time += INTERVAL;
+        }
+        return time;
+    }
+
+    /**
+     * 통합 알람 수신 (CareScheduler) - 지금 도래한 친구 쌍 전체 전송 + 상태 확인을 한 번에 실행
+     * 업로드는 업로더 스레드로 넘기고 끝나면 batch 에 알린다
+     */
+    void runDue(CareScheduler.Batch batch) {
+        long timestamp = System.currentTimeMillis();
+        List<String> due = collectDue(timestamp);
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Log.d(TAG, "하트비트 실행: " + due.size() + "개 친구 쌍");
+
+        // 첫 잠금 해제 전(직접 부팅)에는 업로더 설정과 WebView 모두 쓸 수 없음
+        if (!DirectBootStorage.isUserUnlocked(context)) {
+            Log.w(TAG, "잠금 해제 전 - 하트비트는 다음 슬롯에 전송");
+            return;
+        }
+
+        // WebView 와 관계없이 네이티브 업로더로 직접 전송 (마지막 활동 시각도 함께)
+        LivenessUploader uploader = LivenessUploader.getInstance(context);
+        if (uploader.isConfigured()) {
+            for (String pairId : due) {
+                uploader.enqueueHeartbeat(pairId, timestamp);
+            }
+            uploader.enqueueMotion(MotionPipeline.getInstance(context).getLastMotionTime());
+            // 네트워크 대기는 업로더 스레드에서
+            uploader.flushAsync(batch.defer());
+        }
+
+        // 전송과 확인을 이벤트 하나로 묶어 WebView 전달도 한 번만
+        StringBuilder data = new StringBuilder("{\"pairs\":[");
+        for (int i = 0; i < due.size(); i++) {
+            if (i > 0) {
+                data.append(',');
+            }
+            data.append(JSONObject.quote(due.get(i)));
+        }
+        data.append("],\"timestamp\":").append(timestamp).append('}');
+        EventLog.getInstance(context).publish("heartbeat", data.toString());
+    }
+
+    /**
+     * 가장 이른 실행 시각을 통합 스케줄러에 등록 (이미 같은 시각이면 그대로)
+     * BATCH_WINDOW 만큼 늦어도 되므로 겹치는 다른 작업과 한 번에 깨어날 수 있다
+     */
+    private void armNext() {
+        CareScheduler scheduler = CareScheduler.getInstance(context);
+        if (schedule.isEmpty()) {
+            scheduler.cancel(CareScheduler.TASK_HEARTBEAT);
+            armedTime = 0;
+            return;
+        }
+
+        long next = schedule.first().nextDue;
+        if (next == armedTime) {
+            return;
+        }
+        scheduler.schedule(CareScheduler.TASK_HEARTBEAT, next, next + BATCH_WINDOW, CareScheduler.MODE_WAKEUP);
+        armedTime = next;
+        Log.d(TAG, "다음 하트비트: " + ((next - System.currentTimeMillis()) / 1000) + "초 후");
+    }
+
+    /**
+     * 이전 버전이 친구 쌍마다 걸어둔 반복 알람 정리
+     */
+    private void cancelLegacyAlarm(String pairId) {
+        if (pairId.hashCode() == 0) {
+            return;
+        }
+        CareScheduler.cancelLegacyAlarm(context, "HeartbeatReceiver", ACTION_HEARTBEAT_ALARM, pairId.hashCode());
+    }
+
+    /**
+     * 마지막 일괄 처리가 덮은 범위의 끝 - 기록이 없거나 시계가 뒤로 바뀌어 지나치게 미래면 0
+     */
+    private long lastBatchTime(long now) {
+        long lastBatch = prefs.getLong(KEY_LAST_BATCH_TIME, 0);
+        return lastBatch > now + BATCH_WINDOW ? 0 : lastBatch;
+    }
+
+    private void loadPairs() {
+        // 마지막으로 처리한 회차 이후부터 이어서 (처음이면 지금부터)
+        long lastBatch = lastBatchTime(System.currentTimeMillis());
+        long now = lastBatch > 0 ? lastBatch : System.currentTimeMillis();
+        boolean clearLegacy = !prefs.getBoolean(KEY_LEGACY_ALARMS_CLEARED, false);
+
+        for (Map.Entry<String, Integer> item : registry.getAll().entrySet()) {
+            Entry entry = new Entry(item.getKey(), item.getValue());
+            entry.nextDue = nextDueTime(entry.delaySeconds, now);
+            entries.put(entry.pairId, entry);
+            schedule.add(entry);
+            if (clearLegacy) {
+                cancelLegacyAlarm(entry.pairId);
+            }
+        }
+        if (clearLegacy) {
+            prefs.edit().putBoolean(KEY_LEGACY_ALARMS_CLEARED, true).apply();
+        }
+        Log.d(TAG, "친구 쌍 " + entries.size() + "개 로드");
+    }
+}
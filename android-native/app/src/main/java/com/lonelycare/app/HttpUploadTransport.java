@@ -0,0 +1,65 @@
+package com.lonelycare.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * HttpURLConnection 기반 전송
+ *
+ * 응답 본문을 끝까지 읽고 스트림만 닫으면(disconnect() 호출 안 함) 같은 호스트로의
+ * 다음 요청에서 keep-alive 연결이 재사용된다.
+ * 로컬 대역 서버로 시험할 때는 http://10.0.2.2:포트 같은 주소를 엔드포인트로 주면 된다.
+ */
+public class HttpUploadTransport implements UploadTransport {
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+    private static final int READ_TIMEOUT = 15 * 1000;
+
+    private final URL endpoint;
+    private final String authToken;
+
+    public HttpUploadTransport(String endpoint, String authToken) throws IOException {
+        this.endpoint = new URL(endpoint);
+        this.authToken = authToken;
+    }
+
+    @Override
+    public int post(byte[] body, boolean gzip) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setDoOutput(true);
+        connection.setUseCaches(false);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        if (gzip) {
+            connection.setRequestProperty("Content-Encoding", "gzip");
+        }
+        if (authToken != null && !authToken.isEmpty()) {
+            connection.setRequestProperty("Authorization", "Bearer " + authToken);
+        }
+
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+
+        int status = connection.getResponseCode();
+
+        // 연결 재사용을 위해 응답 본문을 모두 소비
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null) {
+            try {
+                byte[] buffer = new byte[512];
+                while (in.read(buffer) != -1) {
+                    // 본문 내용은 사용하지 않음
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return status;
+    }
+}
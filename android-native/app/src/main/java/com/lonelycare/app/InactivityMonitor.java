@@ -0,0 +1,191 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+/**
+ * 무활동 감지 엔진 - 폴링 대신 "다음 단계 도달 시각"을 CareScheduler 작업 하나로 등록한다
+ *
+ * 단계는 FCM 알림 채널과 동일하게 24시간(주의) / 48시간(위험) / 72시간(응급).
+ * 마지막 활동 시각은 MotionPipeline 이 유일한 기준이다.
+ * 단계에 도달하면 앱이 떠 있지 않아도 같은 레벨 채널로 본인에게 알리고, 업로더로 백엔드에 보낸다.
+ *
+ * 재등록 정책
+ *  - 활동으로 마감 시각이 뒤로 밀려도 이미 걸린 알람은 항상 실제 마감보다 이르므로
+ *    REARM_SLACK 이상 벌어질 때만 다시 건다 (활동 중 재등록 최소화)
+ *  - 알람이 울리면 실제 마지막 활동 시각으로 다시 계산해 단계를 판정하고 다음 마감을 건다
+ *
+ * 마감 후 ALARM_TOLERANCE 안에서는 다른 작업과 같은 알람으로 묶일 수 있다.
+ * 스케줄러 작업은 저장되므로 프로세스가 종료되어도 유지된다 (재부팅 시에는 BootReceiver 가 다시 건다).
+ */
+public class InactivityMonitor {
+    private static final String TAG = "InactivityMonitor";
+
+    private static final String PREF_NAME = "inactivity_monitor";
+    private static final String KEY_ARMED_DEADLINE = "armed_deadline";
+    private static final String KEY_ALERTED_TIER = "alerted_tier";
+    private static final String KEY_ALERT_ANCHOR = "alert_anchor";
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    // 단계별 무활동 기준 (MyFirebaseMessagingService 채널 설명과 동일)
+    private static final long[] TIER_THRESHOLDS = {24 * HOUR, 48 * HOUR, 72 * HOUR};
+    private static final String[] TIER_LEVELS = {"warning", "danger", "emergency"};
+
+    // 활동으로 마감이 이만큼 이상 밀렸을 때만 알람을 다시 건다
+    private static final long REARM_SLACK = 30 * 60 * 1000; // 30분
+
+    // 마감 알람을 다른 작업과 묶기 위해 늦어져도 되는 폭
+    private static final long ALARM_TOLERANCE = 5 * 60 * 1000; // 5분
+
+    private static InactivityMonitor instance;
+
+    public static synchronized InactivityMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new InactivityMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    private long armedDeadline;
+    private int alertedTier;
+    private long alertAnchor;
+
+    private InactivityMonitor(Context context) {
+        this.context = context;
+        this.prefs = DirectBootStorage.get(context).getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.armedDeadline = prefs.getLong(KEY_ARMED_DEADLINE, 0);
+        this.alertedTier = prefs.getInt(KEY_ALERTED_TIER, 0);
+        this.alertAnchor = prefs.getLong(KEY_ALERT_ANCHOR, 0);
+    }
+
+    /**
+     * 활동 기록이 저장됐을 때 호출 - 마감이 충분히 밀렸을 때만 알람 재등록
+     */
+    public synchronized void onActivity(long lastMotionTime) {
+        resetIfNewActivity(lastMotionTime);
+        long deadline = nextDeadline(lastMotionTime);
+        if (deadline == 0) {
+            return;
+        }
+        if (armedDeadline == 0 || deadline < armedDeadline || deadline - armedDeadline >= REARM_SLACK) {
+            arm(deadline);
+        }
+    }
+
+    /**
+     * 현재 활동 시각 기준으로 알람을 무조건 다시 건다 (서비스 시작/재부팅 후)
+     */
+    public synchronized void reschedule() {
+        long lastMotionTime = MotionPipeline.getInstance(context).getLastMotionTime();
+        resetIfNewActivity(lastMotionTime);
+        long deadline = nextDeadline(lastMotionTime);
+        if (deadline > 0) {
+            arm(deadline);
+        }
+    }
+
+    /**
+     * 마감 알람 수신 (CareScheduler) - 실제 마지막 활동 시각으로 단계를 판정하고 다음 마감 등록
+     * 업로드는 업로더 스레드로 넘기고 끝나면 batch 에 알린다
+     */
+    synchronized void onAlarm(CareScheduler.Batch batch) {
+        armedDeadline = 0;
+        long lastMotionTime = MotionPipeline.getInstance(context).getLastMotionTime();
+        if (lastMotionTime == 0) {
+            persist();
+            return;
+        }
+        resetIfNewActivity(lastMotionTime);
+
+        long inactive = System.currentTimeMillis() - lastMotionTime;
+        int reachedTier = alertedTier;
+        while (reachedTier < TIER_THRESHOLDS.length && inactive >= TIER_THRESHOLDS[reachedTier]) {
+            reachedTier++;
+        }
+
+        if (reachedTier > alertedTier) {
+            alertedTier = reachedTier;
+            Log.w(TAG, "무활동 " + (inactive / HOUR) + "시간 - " + TIER_LEVELS[reachedTier - 1] + " 단계");
+            dispatchAlert(TIER_LEVELS[reachedTier - 1], (int) (inactive / HOUR), batch);
+        } else {
+            Log.d(TAG, "마감 전에 활동 있음 - 다음 마감으로 재등록");
+        }
+
+        long deadline = nextDeadline(lastMotionTime);
+        if (deadline > 0) {
+            arm(deadline);
+        } else {
+            persist();
+        }
+    }
+
+    /**
+     * 다음 단계 도달 예정 시각 (0 이면 예정 없음)
+     */
+    public synchronized long getNextDeadline() {
+        return armedDeadline;
+    }
+
+    /**
+     * 이미 알린 단계 이후에 새 활동이 있으면 단계 초기화
+     */
+    private void resetIfNewActivity(long lastMotionTime) {
+        if (lastMotionTime > alertAnchor) {
+            if (alertedTier > 0) {
+                Log.d(TAG, "활동 재개 - 무활동 단계 초기화");
+            }
+            alertAnchor = lastMotionTime;
+            alertedTier = 0;
+        }
+    }
+
+    private long nextDeadline(long lastMotionTime) {
+        if (lastMotionTime == 0 || alertedTier >= TIER_THRESHOLDS.length) {
+            return 0;
+        }
+        return lastMotionTime + TIER_THRESHOLDS[alertedTier];
+    }
+
+    private void arm(long deadline) {
+        // 이미 지난 마감이면 바로 울리도록
+        long triggerAt = Math.max(deadline, System.currentTimeMillis() + 1000);
+        // 정확한 알람 권한이 없으면 스케줄러가 Doze 중에도 울리는 비정확 알람으로 대체
+        CareScheduler.getInstance(context).schedule(
+            CareScheduler.TASK_INACTIVITY, triggerAt, triggerAt + ALARM_TOLERANCE, CareScheduler.MODE_EXACT);
+
+        armedDeadline = deadline;
+        persist();
+        Log.d(TAG, "무활동 알람 등록: " + ((deadline - System.currentTimeMillis()) / 60000) + "분 후");
+    }
+
+    private void persist() {
+        prefs.edit()
+            .putLong(KEY_ARMED_DEADLINE, armedDeadline)
+            .putInt(KEY_ALERTED_TIER, alertedTier)
+            .putLong(KEY_ALERT_ANCHOR, alertAnchor)
+            .apply();
+        PowerStats.count(PowerStats.DISK + PREF_NAME);
+    }
+
+    private void dispatchAlert(String level, int hours, CareScheduler.Batch batch) {
+        NotificationDispatcher.getInstance(context).showInactivityAlert(level, hours);
+        PowerStats.count(PowerStats.NOTIFICATION + "inactivity");
+
+        // 업로더 설정은 CE 저장소 - 잠금 해제 전에는 알림만 (EventLog 는 메모리에 보관)
+        if (DirectBootStorage.isUserUnlocked(context)) {
+            LivenessUploader uploader = LivenessUploader.getInstance(context);
+            uploader.enqueueInactivity(level, System.currentTimeMillis());
+            if (uploader.isConfigured()) {
+                uploader.flushAsync(batch.defer());
+            }
+        }
+
+        // 앱이 떠 있으면 WebView 에도 바로 알림 (없으면 다음에 붙을 때 따라잡기)
+        EventLog.getInstance(context).publishLatest("no_motion", String.valueOf(hours));
+    }
+}
@@ -8,6 +8,8 @@ import com.kakao.sdk.user.UserApiClient;
 import com.kakao.sdk.user.model.User;
 import kotlin.Unit;
 
+import org.json.JSONObject;
+
 public class KakaoLoginManager {
     private static final String TAG = "KakaoLoginManager";
     private static final String KAKAO_NATIVE_KEY = "4c6c86023ea810f377103a07f7b3fde5";
@@ -36,10 +38,8 @@ public class KakaoLoginManager {
         Log.d(TAG, "카카오 네이티브 키: " + KAKAO_NATIVE_KEY);
         
         // 🚨 생명구조 시스템: JavaScript로 즉시 시작 알림
-        notifyJavaScript(
-            "console.log('🚨 생명구조 시스템: AndroidBridge 네이티브 로그인 시작됨');" +
-            "console.log('카카오 네이티브 키: " + KAKAO_NATIVE_KEY + "');"
-        );
+        notifyStatus("🚨 생명구조 시스템: AndroidBridge 네이티브 로그인 시작됨");
+        notifyStatus("카카오 네이티브 키: " + KAKAO_NATIVE_KEY);
         
         try {
             // 🚨 생명구조 시스템: 카카오 SDK 상태 검증
@@ -52,19 +52,17 @@ public class KakaoLoginManager {
             Log.d(TAG, "카카오톡 설치 여부: " + isKakaoTalkAvailable);
             
             // 🚨 생명구조 시스템: 상세 상태를 JavaScript로 전송
-            notifyJavaScript(
-                "console.log('🔍 카카오톡 설치 여부: " + isKakaoTalkAvailable + "');" +
-                "console.log('🔍 Context 상태: " + (context != null ? "정상" : "null") + "');" +
-                "console.log('🔍 Activity 상태: " + (activity != null ? "정상" : "null") + "');"
-            );
+            notifyStatus("🔍 카카오톡 설치 여부: " + isKakaoTalkAvailable);
+            notifyStatus("🔍 Context 상태: " + (context != null ? "정상" : "null"));
+            notifyStatus("🔍 Activity 상태: " + (activity != null ? "정상" : "null"));
             
             if (isKakaoTalkAvailable) {
                 Log.d(TAG, "✅ 카카오톡으로 로그인 시도");
-                notifyJavaScript("console.log('✅ 카카오톡으로 로그인 시도 중...');");
+                notifyStatus("✅ 카카오톡으로 로그인 시도 중...");
                 loginWithKakaoTalk();
             } else {
                 Log.d(TAG, "✅ 카카오계정으로 로그인 시도 (카카오톡 미설치)");
-                notifyJavaScript("console.log('✅ 카카오계정으로 로그인 시도 중... (카카오톡 미설치)');");
+                notifyStatus("✅ 카카오계정으로 로그인 시도 중... (카카오톡 미설치)");
                 loginWithKakaoAccount();
             }
         } catch (Exception e) {
@@ -74,12 +72,8 @@ public class KakaoLoginManager {
             // 🚨 생명구조 시스템: 상세 오류를 JavaScript로 전송
             String errorDetail = "카카오 로그인 초기 오류: " + e.getMessage() + 
                                " (클래스: " + e.getClass().getSimpleName() + ")";
-            notifyJavaScript(
-                "console.error('🚨 생명구조 시스템: " + errorDetail.replace("'", "\\'") + "');" +
-                "console.error('🔄 3초 내 웹 OAuth로 자동 전환 예정');"
-            );
-            
             notifyLoginError(errorDetail);
+            notifyStatus("🔄 3초 내 웹 OAuth로 자동 전환 예정");
         }
     }
     
@@ -250,30 +244,15 @@ public class KakaoLoginManager {
         });
     }
     
+    // 로그인 오류 - 메시지는 데이터로만 보내고 심이 onKakaoLoginError 로 넘김
     private void notifyLoginError(String errorMessage) {
         Log.e(TAG, "JavaScript로 로그인 오류 전송: " + errorMessage);
-        activity.runOnUiThread(() -> {
-            String jsCode = String.format(
-                "console.error('🚨 생명구조 시스템: AndroidBridge 로그인 오류 - %s');" +
-                "if (window.onKakaoLoginError) { " +
-                "  console.log('✅ onKakaoLoginError 콜백 실행');" +
-                "  window.onKakaoLoginError('%s'); " +
-                "} else {" +
-                "  console.warn('⚠️ onKakaoLoginError 콜백이 없습니다');" +
-                "}",
-                errorMessage.replace("'", "\\'"),
-                errorMessage.replace("'", "\\'")
-            );
-            
-            activity.webView.evaluateJavascript(jsCode, null);
-        });
+        WebEventBus.getInstance().send("kakao_login", "{\"error\":" + JSONObject.quote(errorMessage) + "}");
     }
     
-    // 🚨 생명구조 시스템: JavaScript 통신 헬퍼 메서드 추가
-    private void notifyJavaScript(String jsCode) {
-        activity.runOnUiThread(() -> {
-            activity.webView.evaluateJavascript(jsCode, null);
-        });
+    // 🚨 생명구조 시스템: 진행 상황을 JavaScript 콘솔로 전달
+    private void notifyStatus(String status) {
+        WebEventBus.getInstance().send("kakao_login", "{\"status\":" + JSONObject.quote(status) + "}");
     }
     
     public void logout() {
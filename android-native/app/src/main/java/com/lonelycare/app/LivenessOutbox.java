@@ -0,0 +1,345 @@
+package com.lonelycare.app;
+
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 업로드 대기 이벤트를 보관하는 추가 전용 저널 (크래시/재부팅에도 유실 없음)
+ *
+ * 저널 기록: length int + crc32 int + [seq long, type byte, time long, hasKey bool, key UTF]
+ * 전송이 확인된 마지막 seq 는 별도 파일(outbox.ack)에 원자적으로 기록한다.
+ * 시작 시 저널을 다시 읽어 확인되지 않은 이벤트만 메모리에 올리고, crc 가 맞지 않는
+ * 꼬리(기록 도중 종료)는 버린다.
+ *
+ * 그룹 커밋: append() 는 메모리에만 쌓고 COMMIT_DELAY 뒤 한 번의 write + sync 로 기록한다.
+ * 병합: 움직임은 같은 COALESCE_WINDOW 안에서 가장 최근 시각 하나만 남긴다.
+ * 용량: 전송이 안 되는 동안에도 (오프라인, 업로드 미설정) 저장 공간은 제한된다.
+ *  - 이벤트가 MAX_EVENTS 를 넘으면 오래된 것부터 TRIM_TO 까지 버리고 저널을 다시 쓴다
+ *  - 커밋 후 저널이 MAX_JOURNAL_BYTES 를 넘으면 살아있는 이벤트만으로 다시 쓰고,
+ *    그래도 크면 오래된 이벤트부터 버린다
+ */
+public class LivenessOutbox {
+    private static final String TAG = "LivenessOutbox";
+
+    private static final String JOURNAL_NAME = "outbox.log";
+    private static final String ACK_NAME = "outbox.ack";
+
+    private static final long COMMIT_DELAY = 200;
+    private static final long COALESCE_WINDOW = 15 * 60 * 1000; // 15분
+    private static final int MAX_EVENTS = 5000;
+    // 상한을 넘으면 여기까지 줄임 (매 추가마다 다시 쓰지 않도록 여유를 둠)
+    private static final int TRIM_TO = MAX_EVENTS * 9 / 10;
+    private static final long MAX_JOURNAL_BYTES = 256 * 1024;
+    // 다시 쓸 때 살아있는 이벤트가 차지할 수 있는 최대 크기
+    private static final long COMPACT_TARGET_BYTES = MAX_JOURNAL_BYTES * 3 / 4;
+
+    public static class Entry {
+        public final long seq;
+        public final String type;
+        public final long time;
+        public final String key;
+
+        Entry(long seq, String type, long time, String key) {
+            this.seq = seq;
+            this.type = type;
+            this.time = time;
+            this.key = key;
+        }
+    }
+
+    private final File journal;
+    private final AtomicFile journalFile;
+    private final AtomicFile ackFile;
+    private final ScheduledExecutorService executor;
+
+    private final List<Entry> live = new ArrayList<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private boolean commitScheduled = false;
+    private long nextSeq = 1;
+    private long ackedSeq = 0;
+    // 저널에만 남은 (메모리에서 버려진) 이벤트가 있음 - 다음 커밋에서 다시 씀
+    private boolean compactNeeded = false;
+
+    private final Runnable commitTask = new Runnable() {
+        @Override
+        public void run() {
+            commit();
+        }
+    };
+
+    public LivenessOutbox(File dir, ScheduledExecutorService executor) {
+        this.journal = new File(dir, JOURNAL_NAME);
+        this.journalFile = new AtomicFile(journal);
+        this.ackFile = new AtomicFile(new File(dir, ACK_NAME));
+        this.executor = executor;
+        load();
+    }
+
+    /**
+     * 이벤트 추가 - 디스크 기록은 그룹 커밋으로 모아서
+     */
+    public synchronized void append(String type, long time, String key) {
+        Entry entry = new Entry(nextSeq++, type, time, key);
+        addLive(entry);
+        try {
+            writeRecord(new DataOutputStream(pending), entry);
+        } catch (IOException e) {
+            Log.e(TAG, "저널 기록 직렬화 실패", e);
+        }
+        if (!commitScheduled) {
+            commitScheduled = true;
+            executor.schedule(commitTask, COMMIT_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 쌓인 기록을 한 번의 write + sync 로 저널에 반영
+     */
+    public synchronized void commit() {
+        commitScheduled = false;
+        if (pending.size() == 0) {
+            return;
+        }
+        if (compactNeeded || journal.length() + pending.size() > MAX_JOURNAL_BYTES) {
+            // 덧붙이지 않고 살아있는 이벤트만으로 다시 씀 (pending 의 이벤트도 live 에 있음)
+            rewriteJournal();
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            pending.writeTo(out);
+            out.getFD().sync();
+            PowerStats.count(PowerStats.DISK + "outbox");
+        } catch (IOException e) {
+            Log.e(TAG, "저널 기록 실패", e);
+        }
+        pending.reset();
+    }
+
+    /**
+     * 전송할 이벤트를 순서대로 최대 max 개
+     */
+    public synchronized List<Entry> peek(int max) {
+        return new ArrayList<>(live.subList(0, Math.min(max, live.size())));
+    }
+
+    /**
+     * seq 까지 전송 확인 - 그 이전 이벤트(병합으로 빠진 것 포함)는 모두 완료
+     */
+    public synchronized void ack(long seq) {
+        if (seq <= ackedSeq) {
+            return;
+        }
+        ackedSeq = seq;
+        while (!live.isEmpty() && live.get(0).seq <= seq) {
+            live.remove(0);
+        }
+        writeAck();
+
+        if (live.isEmpty() && pending.size() == 0) {
+            // 모두 전송됨 - 저널 비우기
+            journalFile.delete();
+        } else if (journal.length() > MAX_JOURNAL_BYTES) {
+            rewriteJournal();
+        }
+    }
+
+    public synchronized int size() {
+        return live.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return live.isEmpty();
+    }
+
+    /**
+     * 메모리 목록에 추가하면서 병합/용량 제한 적용 (로드 시에도 같은 규칙)
+     */
+    private void addLive(Entry entry) {
+        if (LivenessUploader.TYPE_MOTION.equals(entry.type)) {
+            long window = entry.time / COALESCE_WINDOW;
+            for (int i = live.size() - 1; i >= 0; i--) {
+                Entry existing = live.get(i);
+                if (LivenessUploader.TYPE_MOTION.equals(existing.type) && existing.time / COALESCE_WINDOW == window) {
+                    if (existing.time >= entry.time) {
+                        return;
+                    }
+                    live.remove(i);
+                    break;
+                }
+            }
+        }
+        live.add(entry);
+        if (live.size() > MAX_EVENTS) {
+            int dropped = live.size() - TRIM_TO;
+            live.subList(0, dropped).clear();
+            compactNeeded = true;
+            Log.w(TAG, "대기 이벤트 상한 초과 - 오래된 " + dropped + "개 버림");
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeLong(entry.seq);
+        payload.writeByte(entry.type.charAt(0));
+        payload.writeLong(entry.time);
+        payload.writeBoolean(entry.key != null);
+        if (entry.key != null) {
+            payload.writeUTF(entry.key);
+        }
+        byte[] data = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        out.writeInt(data.length);
+        out.writeInt((int) crc.getValue());
+        out.write(data);
+    }
+
+    private void load() {
+        ackedSeq = readAck();
+        nextSeq = ackedSeq + 1;
+        if (!journal.exists()) {
+            return;
+        }
+
+        int records = 0;
+        long consumed = 0;
+        boolean corrupt = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(journalFile.openRead()))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int expectedCrc = in.readInt();
+                if (length <= 0 || length > 64 * 1024) {
+                    corrupt = true;
+                    break;
+                }
+                byte[] data = new byte[length];
+                in.readFully(data);
+
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, data.length);
+                if ((int) crc.getValue() != expectedCrc) {
+                    corrupt = true;
+                    break;
+                }
+
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(data));
+                long seq = payload.readLong();
+                String type = String.valueOf((char) payload.readByte());
+                long time = payload.readLong();
+                String key = payload.readBoolean() ? payload.readUTF() : null;
+
+                records++;
+                consumed += 8 + length;
+                nextSeq = Math.max(nextSeq, seq + 1);
+                if (seq > ackedSeq) {
+                    addLive(new Entry(seq, type, time, key));
+                }
+            }
+        } catch (IOException e) {
+            // 기록 도중 종료된 마지막 항목
+            corrupt = true;
+        }
+
+        // 길이 필드조차 다 쓰지 못한 꼬리도 손상으로 처리 (뒤에 덧붙인 기록이 읽히지 않게 됨)
+        if (!corrupt && consumed != journal.length()) {
+            corrupt = true;
+        }
+        if (corrupt) {
+            Log.w(TAG, "저널 꼬리 손상 - 정상 기록만 유지");
+        }
+        if (corrupt || compactNeeded || journal.length() > MAX_JOURNAL_BYTES) {
+            rewriteJournal();
+        }
+        Log.d(TAG, "대기 이벤트 " + live.size() + "개 복구 (저널 기록 " + records + "개)");
+    }
+
+    /**
+     * 살아있는 이벤트만으로 저널을 원자적으로 다시 쓴다 (아직 쓰지 않은 pending 기록도 포함됨)
+     * 살아있는 이벤트만으로도 COMPACT_TARGET_BYTES 를 넘으면 최근 것만 남긴다
+     */
+    private void rewriteJournal() {
+        pending.reset();
+        compactNeeded = false;
+        List<byte[]> records = new ArrayList<>(live.size());
+        long total = 0;
+        int keepFrom = live.size();
+        try {
+            for (int i = live.size() - 1; i >= 0; i--) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+                writeRecord(new DataOutputStream(bytes), live.get(i));
+                if (total + bytes.size() > COMPACT_TARGET_BYTES) {
+                    break;
+                }
+                total += bytes.size();
+                records.add(0, bytes.toByteArray());
+                keepFrom = i;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "저널 기록 직렬화 실패", e);
+            return;
+        }
+        if (keepFrom > 0) {
+            Log.w(TAG, "저널 용량 초과 - 오래된 대기 이벤트 " + keepFrom + "개 버림");
+            live.subList(0, keepFrom).clear();
+        }
+
+        FileOutputStream stream = null;
+        try {
+            stream = journalFile.startWrite();
+            for (byte[] record : records) {
+                stream.write(record);
+            }
+            journalFile.finishWrite(stream);
+            PowerStats.count(PowerStats.DISK + "outbox_compact");
+        } catch (IOException e) {
+            Log.e(TAG, "저널 다시 쓰기 실패", e);
+            if (stream != null) {
+                journalFile.failWrite(stream);
+            }
+        }
+    }
+
+    private long readAck() {
+        try (DataInputStream in = new DataInputStream(ackFile.openRead())) {
+            return in.readLong();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void writeAck() {
+        FileOutputStream stream = null;
+        try {
+            stream = ackFile.startWrite();
+            new DataOutputStream(stream).writeLong(ackedSeq);
+            ackFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.e(TAG, "전송 확인 기록 실패", e);
+            if (stream != null) {
+                ackFile.failWrite(stream);
+            }
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 하트비트/움직임/세션/알림 확인/무활동 단계를 WebView 없이 백엔드로 직접 보내는 업로더
+ *
+ * 이벤트는 LivenessOutbox 저널에 먼저 기록한 뒤 한 번의 요청으로 묶어 보낸다.
+ *  - 하트비트, 무활동 단계: 알람 처리 중 flushAsync() 로 바로 전송 (한 묶음만, 나머지는 예약 전송)
+ *  - 그 외: BATCH_DELAY 동안 모았다가 전송 (움직임은 저널에서 병합)
+ *  - 실패 시 지수 백오프로 재시도하고, 네트워크가 돌아오면 바로 재시도
+ *
+ * 본문 형식 (짧은 키의 JSON, GZIP_THRESHOLD 이상이면 gzip):
+ * {"u":사용자ID,"t":전송시각,"e":[["h",시각,"pairId"],["m",시각],["i",시각,"danger"]]}
+ *
+ * 엔드포인트는 JS 에서 configure() 로 지정하며, 지정 전에는 이벤트를 기록하지 않는다
+ * (보낼 곳이 없는 이벤트로 저널과 디스크 쓰기가 늘지 않도록).
+ */
+public class LivenessUploader {
+    private static final String TAG = "LivenessUploader";
+
+    private static final String PREF_NAME = "liveness_uploader";
+    private static final String KEY_ENDPOINT = "endpoint";
+    private static final String KEY_TOKEN = "token";
+    private static final String KEY_USER_ID = "user_id";
+
+    public static final String TYPE_HEARTBEAT = "h";
+    public static final String TYPE_MOTION = "m";
+    public static final String TYPE_SESSION = "s";
+    public static final String TYPE_ALERT_ACK = "a";
+    public static final String TYPE_INACTIVITY = "i";
+
+    private static final int MAX_BATCH = 200;
+    private static final long BATCH_DELAY = 30 * 1000;
+    private static final long BACKOFF_BASE = 30 * 1000;
+    private static final long BACKOFF_MAX = 60 * 60 * 1000;
+    private static final int GZIP_THRESHOLD = 1024;
+    // 백그라운드 브로드캐스트 처리 제한(약 10초) 안에 수신 측이 끝나도록 주는 시간
+    private static final long RECEIVER_BUDGET = 8 * 1000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static LivenessUploader instance;
+
+    public static synchronized LivenessUploader getInstance(Context context) {
+        if (instance == null) {
+            instance = new LivenessUploader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final SharedPreferences prefs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final LivenessOutbox outbox;
+    private final Object sendLock = new Object();
+    private final Random random = new Random();
+
+    private UploadTransport transport;
+    private String userId;
+    private ScheduledFuture<?> scheduledFlush;
+    private long scheduledFlushAt = 0;
+    private int failures = 0;
+
+    // 테스트는 싱글턴 대신 직접 생성
+    LivenessUploader(Context context) {
+        prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        userId = prefs.getString(KEY_USER_ID, "");
+        transport = createTransport(prefs.getString(KEY_ENDPOINT, ""), prefs.getString(KEY_TOKEN, ""));
+        outbox = new LivenessOutbox(context.getFilesDir(), executor);
+        registerNetworkCallback(context);
+
+        // 이전 프로세스에서 보내지 못한 이벤트
+        if (!outbox.isEmpty()) {
+            scheduleFlush(BATCH_DELAY);
+        }
+    }
+
+    /**
+     * 업로드 대상 설정 (빈 엔드포인트면 업로드 중지)
+     */
+    public synchronized void configure(String endpoint, String token, String userId) {
+        prefs.edit()
+            .putString(KEY_ENDPOINT, endpoint)
+            .putString(KEY_TOKEN, token)
+            .putString(KEY_USER_ID, userId)
+            .apply();
+        this.userId = userId != null ? userId : "";
+        this.transport = createTransport(endpoint, token);
+        Log.d(TAG, "업로더 설정: " + (transport != null ? endpoint : "비활성"));
+        if (transport != null && !outbox.isEmpty()) {
+            failures = 0;
+            scheduleFlush(0);
+        }
+    }
+
+    /**
+     * 전송 계층 교체 (로컬 대역 서버 등)
+     */
+    public synchronized void setTransport(UploadTransport transport) {
+        this.transport = transport;
+    }
+
+    public synchronized boolean isConfigured() {
+        return transport != null;
+    }
+
+    public int getPendingCount() {
+        return outbox.size();
+    }
+
+    /**
+     * 하트비트 추가 - 호출 측에서 flushAsync() 로 바로 보냄
+     */
+    public void enqueueHeartbeat(String pairId, long time) {
+        append(TYPE_HEARTBEAT, time, pairId);
+    }
+
+    /**
+     * 움직임 시각 추가 - 같은 구간의 이전 움직임은 저널에서 병합된다
+     */
+    public void enqueueMotion(long lastMotionTime) {
+        if (lastMotionTime <= 0) {
+            return;
+        }
+        if (append(TYPE_MOTION, lastMotionTime, null)) {
+            scheduleFlushLater();
+        }
+    }
+
+    public void enqueueSession(String status, long time) {
+        if (append(TYPE_SESSION, time, status)) {
+            scheduleFlushLater();
+        }
+    }
+
+    public void enqueueAlertAck(String alertId, long time) {
+        if (append(TYPE_ALERT_ACK, time, alertId)) {
+            scheduleFlushLater();
+        }
+    }
+
+    /**
+     * 무활동 단계 도달 (InactivityMonitor) - 호출 측에서 flushAsync() 로 바로 보냄
+     */
+    public void enqueueInactivity(String level, long time) {
+        append(TYPE_INACTIVITY, time, level);
+    }
+
+    /**
+     * 업로드 대상이 설정돼 있을 때만 저널에 추가
+     */
+    private boolean append(String type, long time, String key) {
+        if (!isConfigured()) {
+            return false;
+        }
+        outbox.append(type, time, key);
+        return true;
+    }
+
+    /**
+     * 저널에 쌓인 이벤트를 지금 전송 (호출 스레드에서 실행 - 메인 스레드 금지)
+     *
+     * @return 대기 이벤트가 모두 전송됐으면 true
+     */
+    public boolean flushNow() {
+        return flush(Integer.MAX_VALUE);
+    }
+
+    /**
+     * 최대 maxBatches 묶음 전송 - 보낼 것이 남으면 바로 이어서 보내도록 예약
+     */
+    private boolean flush(int maxBatches) {
+        synchronized (sendLock) {
+            boolean ok = sendBatches(maxBatches);
+            boolean sent = ok && outbox.isEmpty();
+            synchronized (this) {
+                if (sent) {
+                    failures = 0;
+                } else if (ok) {
+                    // 묶음 수 제한으로 멈춤 - 나머지는 업로더 스레드에서 이어서
+                    failures = 0;
+                    scheduleFlush(0);
+                } else if (transport != null && !outbox.isEmpty()) {
+                    // 실패 - 지수 백오프(지터 포함)로 재시도
+                    long delay = Math.min(BACKOFF_MAX, BACKOFF_BASE << Math.min(failures, 16));
+                    delay = delay / 2 + (long) (random.nextDouble() * (delay / 2));
+                    failures++;
+                    Log.d(TAG, "업로드 재시도 예약: " + (delay / 1000) + "초 후 (" + failures + "회 실패)");
+                    scheduleFlush(delay);
+                }
+            }
+            return sent;
+        }
+    }
+
+    /**
+     * 브로드캐스트 수신 중 전송 (알람, 부팅) - 업로더 스레드에서 한 묶음만 보내고 done 실행
+     *
+     * 연결/응답이 늦거나 업로더 스레드가 이전 전송으로 바쁘더라도 RECEIVER_BUDGET 뒤에는
+     * done 을 먼저 실행해 PendingResult 가 제한 시간을 넘기지 않게 한다.
+     * 남은 이벤트와 시간이 지나 시작하지 못한 전송은 scheduleFlush 로 이어서 보낸다.
+     */
+    public void flushAsync(final Runnable done) {
+        final long deadline = SystemClock.uptimeMillis() + RECEIVER_BUDGET;
+        final Handler timer = CareWorker.getHandler();
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        final Runnable finish = new Runnable() {
+            @Override
+            public void run() {
+                if (finished.compareAndSet(false, true)) {
+                    timer.removeCallbacks(this);
+                    done.run();
+                }
+            }
+        };
+        timer.postAtTime(finish, deadline);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (SystemClock.uptimeMillis() < deadline) {
+                        flush(1);
+                    } else {
+                        Log.w(TAG, "수신 처리 시간 초과 - 예약 전송으로 넘김");
+                        scheduleFlush(0);
+                    }
+                } finally {
+                    finish.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 최대 maxBatches 묶음을 차례로 전송 - 실패하거나 전송 계층이 없으면 false
+     */
+    private boolean sendBatches(int maxBatches) {
+        // 전송 전 기록 중인 이벤트도 저널에 반영
+        outbox.commit();
+        for (int sentBatches = 0; sentBatches < maxBatches; sentBatches++) {
+            List<LivenessOutbox.Entry> batch = outbox.peek(MAX_BATCH);
+            UploadTransport currentTransport;
+            String currentUserId;
+            synchronized (this) {
+                if (batch.isEmpty()) {
+                    return true;
+                }
+                if (transport == null) {
+                    return false;
+                }
+                currentTransport = transport;
+                currentUserId = userId;
+            }
+
+            try {
+                byte[] body = encode(currentUserId, batch);
+                boolean gzip = body.length >= GZIP_THRESHOLD;
+                if (gzip) {
+                    body = gzip(body);
+                }
+                int status = currentTransport.post(body, gzip);
+                if (status < 200 || status >= 300) {
+                    Log.w(TAG, "업로드 실패: HTTP " + status);
+                    return false;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "업로드 실패: " + e.getMessage());
+                return false;
+            }
+
+            // 보낸 마지막 seq 까지 완료 (그 사이 병합으로 빠진 항목 포함)
+            outbox.ack(batch.get(batch.size() - 1).seq);
+            Log.d(TAG, "업로드 완료: " + batch.size() + "개 이벤트");
+        }
+        return true;
+    }
+
+    /**
+     * 묶음 전송 예약 - 백오프 중이면 예약된 재시도 시각을 그대로 따른다
+     */
+    private synchronized void scheduleFlushLater() {
+        if (failures == 0) {
+            scheduleFlush(BATCH_DELAY);
+        }
+    }
+
+    /**
+     * delayMs 뒤 전송 - 이미 더 이른 예약이 있으면 유지
+     */
+    private synchronized void scheduleFlush(long delayMs) {
+        if (transport == null) {
+            return;
+        }
+        long at = System.currentTimeMillis() + delayMs;
+        if (scheduledFlush != null && !scheduledFlush.isDone()) {
+            if (scheduledFlushAt <= at) {
+                return;
+            }
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlushAt = at;
+        scheduledFlush = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flushNow();
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 네트워크가 돌아오면 백오프를 초기화하고 바로 전송
+     */
+    private void registerNetworkCallback(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return;
+        }
+        ConnectivityManager connectivityManager =
+            (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return;
+        }
+        connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                if (!outbox.isEmpty()) {
+                    synchronized (LivenessUploader.this) {
+                        failures = 0;
+                    }
+                    Log.d(TAG, "네트워크 연결됨 - 대기 이벤트 " + outbox.size() + "개 전송");
+                    scheduleFlush(0);
+                }
+            }
+        });
+    }
+
+    private static UploadTransport createTransport(String endpoint, String token) {
+        if (endpoint == null || endpoint.isEmpty()) {
+            return null;
+        }
+        try {
+            return new HttpUploadTransport(endpoint, token);
+        } catch (IOException e) {
+            Log.e(TAG, "잘못된 업로드 엔드포인트: " + endpoint, e);
+            return null;
+        }
+    }
+
+    private static byte[] encode(String userId, List<LivenessOutbox.Entry> events) {
+        StringBuilder json = new StringBuilder(32 + events.size() * 40);
+        json.append("{\"u\":").append(JSONObject.quote(userId))
+            .append(",\"t\":").append(System.currentTimeMillis())
+            .append(",\"e\":[");
+        for (int i = 0; i < events.size(); i++) {
+            LivenessOutbox.Entry event = events.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("[\"").append(event.type).append("\",").append(event.time);
+            if (event.key != null) {
+                json.append(',').append(JSONObject.quote(event.key));
+            }
+            json.append(']');
+        }
+        json.append("]}");
+        return json.toString().getBytes(UTF_8);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -34,14 +34,12 @@ import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import androidx.annotation.NonNull;
+import org.json.JSONObject;
 
 public class MainActivity extends AppCompatActivity {
     public WebView webView;
     private AndroidBridge androidBridge;
     public KakaoLoginManager kakaoLoginManager;
-    private BroadcastReceiver motionReceiver;
-    private BroadcastReceiver heartbeatReceiver;
-    private BroadcastReceiver checkHeartbeatReceiver;
     private BroadcastReceiver sessionRefreshReceiver;
     
     // 파일 업로드를 위한 변수들
@@ -60,6 +58,8 @@ public class MainActivity extends AppCompatActivity {
         currentInstance = this;
 
         webView = findViewById(R.id.webview);
+        // 네이티브 → JS 이벤트는 버스를 거쳐 프레임당 한 번에 전달 (페이지 로드 전에는 보관)
+        WebEventBus.getInstance().attach(webView);
         androidBridge = new AndroidBridge(this, this);
         kakaoLoginManager = new KakaoLoginManager(this, this);
         
@@ -69,17 +69,8 @@ public class MainActivity extends AppCompatActivity {
         // Android 13+ 알림 권한 요청
         requestNotificationPermission();
         
-        // 움직임 감지 서비스 시작
-        startMotionDetectionService();
-        
-        // 하트비트 서비스 시작
-        startHeartbeatService();
-        
-        // 움직임 감지 브로드캐스트 리시버 등록
-        setupMotionReceiver();
-        
-        // 하트비트 브로드캐스트 리시버 등록
-        setupHeartbeatReceivers();
+        // 케어 엔진 시작 (움직임 감지 + 하트비트 + 세션 유지)
+        startCareEngine();
         
         // 세션 갱신 브로드캐스트 리시버 등록
         setupSessionRefreshReceiver();
@@ -143,15 +134,12 @@ public class MainActivity extends AppCompatActivity {
                     
                     if (code != null) {
                         Log.d("WebView", "✅ 인증 코드 받음: " + code);
-                        // JavaScript로 OAuth 콜백 처리
-                        String jsCode = String.format("if(window.handleOAuthCallback) { window.handleOAuthCallback('%s'); }", code);
-                        view.evaluateJavascript(jsCode, null);
+                        // JavaScript로 OAuth 콜백 처리 (심이 handleOAuthCallback 으로 전달)
+                        sendOAuthCode(code);
                     } else if (error != null) {
                         Log.e("WebView", "❌ OAuth 에러: " + error);
                         String errorDesc = uri.getQueryParameter("error_description");
-                        String jsCode = String.format("if(window.onKakaoLoginFailure) { window.onKakaoLoginFailure('%s: %s'); }", 
-                                                    error, errorDesc != null ? errorDesc : "");
-                        view.evaluateJavascript(jsCode, null);
+                        sendOAuthError(error + ": " + (errorDesc != null ? errorDesc : ""));
                     }
                     
                     return true; // 이 URL은 WebView에서 로드하지 않음
@@ -217,13 +205,22 @@ public class MainActivity extends AppCompatActivity {
                 return false;
             }
             
+            @Override
+            public void onPageStarted(WebView view, String url, android.graphics.Bitmap favicon) {
+                super.onPageStarted(view, url, favicon);
+                WebEventBus.getInstance().onPageStarted();
+                BootSnapshot.getInstance(MainActivity.this).injectFallback(view);
+            }
+            
             @Override
             public void onPageFinished(WebView view, String url) {
                 super.onPageFinished(view, url);
                 Log.d("WebView", "Page finished loading: " + url);
                 
-                // 페이지 로드 완료 후 앱 초기화 확인
-                if (url.contains("index.html") || url.equals("file:///android_asset/index.html")) {
+                // 페이지 로드 완료 후 앱 초기화 확인 - 시작 스냅샷이 페이지 스크립트보다 먼저 들어갔으면
+                // index.html 시작 스크립트가 이미 그 값으로 로그인 상태를 정했으므로 다시 확인하지 않음
+                if (!BootSnapshot.getInstance(MainActivity.this).isInstalled()
+                        && (url.contains("index.html") || url.equals("file:///android_asset/index.html"))) {
                     view.evaluateJavascript(
                         "console.log('WebView에서 페이지 로드 완료'); " +
                         "if (typeof checkLoginStatus === 'function') { " +
@@ -235,6 +232,9 @@ public class MainActivity extends AppCompatActivity {
                         null
                     );
                 }
+                
+                // 로드 전에 쌓인 네이티브 이벤트 전달
+                WebEventBus.getInstance().onPageFinished();
             }
         });
         
@@ -346,7 +346,8 @@ public class MainActivity extends AppCompatActivity {
             }
         });
         
-        // assets 폴더의 index.html 로드
+        // assets 폴더의 index.html 로드 - 시작 상태 스냅샷을 먼저 등록
+        BootSnapshot.getInstance(this).attach(webView);
         webView.loadUrl("file:///android_asset/index.html");
     }
     
@@ -359,6 +360,17 @@ public class MainActivity extends AppCompatActivity {
         if (androidBridge != null) {
             androidBridge.onAppForeground();
         }
+        
+        // 포그라운드 전환은 세션 활성 이벤트
+        SessionEngine.getInstance(this).onForeground();
+        // 설정에서 알림 권한이 바뀌었을 수 있음
+        BootSnapshot.getInstance(this).invalidate();
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        SessionEngine.getInstance(this).onBackground();
     }
     
     @Override
@@ -382,12 +394,7 @@ public class MainActivity extends AppCompatActivity {
                 if (error != null) {
                     Log.e("MainActivity", "OAuth 에러 발생: " + error);
                     // WebView에 에러 전달
-                    webView.post(() -> {
-                        webView.evaluateJavascript(
-                            "if (window.onKakaoLoginFailure) { " +
-                            "  window.onKakaoLoginFailure('" + error + "'); " +
-                            "}", null);
-                    });
+                    sendOAuthError(error);
                     return;
                 }
 
@@ -395,22 +402,10 @@ public class MainActivity extends AppCompatActivity {
                     Log.d("MainActivity", "✅ 인증 코드 수신: " + authCode.substring(0, Math.min(10, authCode.length())) + "...");
 
                     // WebView에 인증 코드 전달하여 토큰 교환 진행
-                    webView.post(() -> {
-                        webView.evaluateJavascript(
-                            "if (window.handleOAuthCallback) { " +
-                            "  window.handleOAuthCallback('" + authCode + "'); " +
-                            "} else { " +
-                            "  console.log('❌ handleOAuthCallback 함수 없음'); " +
-                            "}", null);
-                    });
+                    sendOAuthCode(authCode);
                 } else {
                     Log.e("MainActivity", "❌ 인증 코드가 없습니다");
-                    webView.post(() -> {
-                        webView.evaluateJavascript(
-                            "if (window.onKakaoLoginFailure) { " +
-                            "  window.onKakaoLoginFailure('인증 코드가 없습니다'); " +
-                            "}", null);
-                    });
+                    sendOAuthError("인증 코드가 없습니다");
                 }
             }
         }
@@ -426,21 +421,11 @@ public class MainActivity extends AppCompatActivity {
 
             // WebView로 알림 정보 전달
             if (webView != null && friendId != null) {
-                runOnUiThread(() -> {
-                    String jsCode = String.format(
-                        "if (window.onNotificationOpened) { " +
-                        "  window.onNotificationOpened({friendId:'%s', alertLevel:'%s', action:'%s'}); " +
-                        "} else { " +
-                        "  console.log('📱 알림에서 앱 열림:', {friendId:'%s', alertLevel:'%s', action:'%s'}); " +
-                        "}",
-                        friendId, alertLevel != null ? alertLevel : "",
-                        action != null ? action : "",
-                        friendId, alertLevel != null ? alertLevel : "",
-                        action != null ? action : ""
-                    );
+                String data = "{\"friendId\":" + JSONObject.quote(friendId) +
+                    ",\"alertLevel\":" + JSONObject.quote(alertLevel != null ? alertLevel : "") +
+                    ",\"action\":" + JSONObject.quote(action != null ? action : "") + "}";
 
-                    webView.evaluateJavascript(jsCode, null);
-                });
+                WebEventBus.getInstance().send("notification_opened", data);
             }
 
             // 119 신고 액션 처리
@@ -478,8 +463,8 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
-    // 움직임 감지 서비스 시작
-    private void startMotionDetectionService() {
+    // 케어 엔진 시작
+    private void startCareEngine() {
         // 권한 확인
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
             if (checkSelfPermission(Manifest.permission.ACTIVITY_RECOGNITION) != PackageManager.PERMISSION_GRANTED) {
@@ -488,94 +473,7 @@ public class MainActivity extends AppCompatActivity {
             }
         }
         
-        Intent serviceIntent = new Intent(this, MotionDetectionService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            startForegroundService(serviceIntent);
-        } else {
-            startService(serviceIntent);
-        }
-    }
-    
-    // 움직임 감지 브로드캐스트 리시버 설정
-    private void setupMotionReceiver() {
-        motionReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if ("com.lonelycare.MOTION_DETECTED".equals(intent.getAction())) {
-                    long timestamp = intent.getLongExtra("timestamp", System.currentTimeMillis());
-                    
-                    // WebView에 움직임 알림
-                    webView.post(() -> {
-                        webView.evaluateJavascript(
-                            "if (typeof updateActivityFromSensor === 'function') { " +
-                            "  updateActivityFromSensor(" + timestamp + "); " +
-                            "}", null);
-                    });
-                }
-            }
-        };
-        
-        IntentFilter filter = new IntentFilter("com.lonelycare.MOTION_DETECTED");
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(motionReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(motionReceiver, filter);
-        }
-    }
-    
-    // 하트비트 서비스 시작
-    private void startHeartbeatService() {
-        Intent serviceIntent = new Intent(this, HeartbeatService.class);
-        startService(serviceIntent);
-    }
-    
-    // 하트비트 브로드캐스트 리시버들 설정
-    private void setupHeartbeatReceivers() {
-        // 하트비트 전송 리시버
-        heartbeatReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if ("com.lonelycare.SEND_HEARTBEAT".equals(intent.getAction())) {
-                    String pairId = intent.getStringExtra("pair_id");
-                    long timestamp = intent.getLongExtra("timestamp", System.currentTimeMillis());
-                    
-                    webView.post(() -> {
-                        webView.evaluateJavascript(
-                            "if (typeof sendHeartbeatToPair === 'function') { " +
-                            "  sendHeartbeatToPair('" + pairId + "', " + timestamp + "); " +
-                            "}", null);
-                    });
-                }
-            }
-        };
-        
-        // 하트비트 체크 리시버
-        checkHeartbeatReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if ("com.lonelycare.CHECK_HEARTBEATS".equals(intent.getAction())) {
-                    long timestamp = intent.getLongExtra("timestamp", System.currentTimeMillis());
-                    
-                    webView.post(() -> {
-                        webView.evaluateJavascript(
-                            "if (typeof checkAllHeartbeats === 'function') { " +
-                            "  checkAllHeartbeats(" + timestamp + "); " +
-                            "}", null);
-                    });
-                }
-            }
-        };
-        
-        IntentFilter heartbeatFilter = new IntentFilter("com.lonelycare.SEND_HEARTBEAT");
-        IntentFilter checkFilter = new IntentFilter("com.lonelycare.CHECK_HEARTBEATS");
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(heartbeatReceiver, heartbeatFilter, Context.RECEIVER_NOT_EXPORTED);
-            registerReceiver(checkHeartbeatReceiver, checkFilter, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(heartbeatReceiver, heartbeatFilter);
-            registerReceiver(checkHeartbeatReceiver, checkFilter);
-        }
+        CareEngineService.start(this);
     }
     
     // 알림 권한 요청 (Android 13+)
@@ -606,6 +504,7 @@ public class MainActivity extends AppCompatActivity {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         
         if (requestCode == NOTIFICATION_PERMISSION_REQUEST_CODE) {
+            BootSnapshot.getInstance(this).invalidate();
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 Log.d("LifeSaverFCM", "✅ 알림 권한 허용됨 - 생명구조 시스템 활성화");
                 onNotificationPermissionGranted();
@@ -624,16 +523,7 @@ public class MainActivity extends AppCompatActivity {
         
         // WebView로 권한 상태 전달
         if (webView != null) {
-            runOnUiThread(() -> {
-                String jsCode = 
-                    "if (window.onNotificationPermissionGranted) { " +
-                    "  window.onNotificationPermissionGranted(); " +
-                    "} else { " +
-                    "  console.log('🔔 알림 권한 허용됨'); " +
-                    "}";
-                
-                webView.evaluateJavascript(jsCode, null);
-            });
+            WebEventBus.getInstance().sendLatest("notification_permission", "{\"granted\":true}");
         }
     }
     
@@ -661,16 +551,7 @@ public class MainActivity extends AppCompatActivity {
         
         // WebView로 권한 거부 상태 전달
         if (webView != null) {
-            runOnUiThread(() -> {
-                String jsCode = 
-                    "if (window.onNotificationPermissionDenied) { " +
-                    "  window.onNotificationPermissionDenied(); " +
-                    "} else { " +
-                    "  console.warn('❌ 알림 권한 거부됨 - 백그라운드 알림 불가'); " +
-                    "}";
-                
-                webView.evaluateJavascript(jsCode, null);
-            });
+            WebEventBus.getInstance().sendLatest("notification_permission", "{\"granted\":false}");
         }
     }
     
@@ -683,12 +564,7 @@ public class MainActivity extends AppCompatActivity {
                     Log.d("MainActivity", "세션 갱신 알림 수신");
                     
                     // WebView에 세션 갱신 알림
-                    webView.post(() -> {
-                        webView.evaluateJavascript(
-                            "if (typeof refreshSessionFromBackground === 'function') { " +
-                            "  refreshSessionFromBackground(); " +
-                            "}", null);
-                    });
+                    WebEventBus.getInstance().sendLatest("session_refresh", null);
                 }
             }
         };
@@ -743,21 +619,14 @@ public class MainActivity extends AppCompatActivity {
     
     @Override
     protected void onDestroy() {
-        if (motionReceiver != null) {
-            unregisterReceiver(motionReceiver);
-        }
-        if (heartbeatReceiver != null) {
-            unregisterReceiver(heartbeatReceiver);
-        }
-        if (checkHeartbeatReceiver != null) {
-            unregisterReceiver(checkHeartbeatReceiver);
-        }
         if (sessionRefreshReceiver != null) {
             unregisterReceiver(sessionRefreshReceiver);
         }
         if (androidBridge != null) {
             androidBridge.stopSensorService();
         }
+        WebEventBus.getInstance().detach(webView);
+        BootSnapshot.getInstance(this).detach(webView);
         
         // 생명구조 시스템: 현재 인스턴스 정리
         currentInstance = null;
@@ -799,6 +668,7 @@ public class MainActivity extends AppCompatActivity {
                         .putString("fcm_token", token)
                         .putLong("fcm_token_time", System.currentTimeMillis())
                         .apply();
+                    SessionEngine.getInstance(MainActivity.this).onFcmTokenUpdated();
                     
                     // WebView로 토큰 전달
                     sendFCMTokenToWebView(token);
@@ -811,28 +681,29 @@ public class MainActivity extends AppCompatActivity {
      */
     private void sendFCMTokenToWebView(String token) {
         if (webView != null) {
-            runOnUiThread(() -> {
-                String jsCode = String.format(
-                    "if (window.onFCMTokenReceived) { " +
-                    "  window.onFCMTokenReceived('%s'); " +
-                    "  console.log('🔑 Android에서 FCM 토큰 수신'); " +
-                    "} else { " +
-                    "  console.log('⚠️ onFCMTokenReceived 핸들러가 없음'); " +
-                    "  window.androidFCMToken = '%s'; " +
-                    "}",
-                    token, token
-                );
-                
-                webView.evaluateJavascript(jsCode, null);
-                Log.d("LifeSaverFCM", "📤 FCM 토큰 WebView 전달 완료");
-            });
+            WebEventBus.getInstance().sendLatest("fcm_token", JSONObject.quote(token));
+            Log.d("LifeSaverFCM", "📤 FCM 토큰 WebView 전달 요청");
         }
     }
     
     /**
      * 알림에서 앱이 열렸을 때 처리
      */
-    
+
+    /**
+     * 카카오 OAuth 인증 코드 전달 - 값은 데이터로만 보내고 심이 handleOAuthCallback 으로 넘김
+     */
+    private void sendOAuthCode(String code) {
+        WebEventBus.getInstance().send("oauth", "{\"code\":" + JSONObject.quote(code) + "}");
+    }
+
+    /**
+     * 카카오 OAuth 오류 전달 - 심이 onKakaoLoginFailure 로 넘김
+     */
+    private void sendOAuthError(String message) {
+        WebEventBus.getInstance().send("oauth", "{\"error\":" + JSONObject.quote(message) + "}");
+    }
+
     /**
      * 119 신고 액션 처리
      */
@@ -841,21 +712,7 @@ public class MainActivity extends AppCompatActivity {
         
         // WebView로 119 신고 명령 전달
         if (webView != null) {
-            runOnUiThread(() -> {
-                String jsCode = String.format(
-                    "if (window.handle119Emergency) { " +
-                    "  window.handle119Emergency('%s'); " +
-                    "} else { " +
-                    "  console.log('🚨 119 신고 요청: %s'); " +
-                    "  alert('119에 %s님에 대한 응급신고를 진행합니다.'); " +
-                    "}",
-                    friendName != null ? friendName : "친구",
-                    friendName != null ? friendName : "친구",
-                    friendName != null ? friendName : "친구"
-                );
-                
-                webView.evaluateJavascript(jsCode, null);
-            });
+            WebEventBus.getInstance().send("call_119", JSONObject.quote(friendName != null ? friendName : "친구"));
         }
     }
 }
\ No newline at end of file
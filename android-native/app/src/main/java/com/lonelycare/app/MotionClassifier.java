@@ -0,0 +1,164 @@
+package com.lonelycare.app;
+
+/**
+ * 가속도계 샘플 기반 움직임 분류기
+ *
+ * 중력 성분을 저역 통과 필터로 분리한 선형 가속도 크기를 고정 크기 float 링버퍼에 보관하고,
+ * 윈도우 단위 에너지(제곱 평균)와 분산을 누적 합으로 계산한다.
+ * 센서 이벤트마다 객체를 만들지 않도록 모든 상태를 원시 타입 필드로만 유지한다.
+ *
+ * 스레드 안전하지 않음 - 센서 스레드 하나에서만 호출할 것
+ */
+public class MotionClassifier {
+
+    // 활동 상태 (JS/로그로 전달하기 쉽도록 int 상수 사용)
+    public static final int STATE_STILL = 0;
+    public static final int STATE_LIGHT = 1;
+    public static final int STATE_ACTIVE = 2;
+
+    // 약 6초 윈도우 (200ms 샘플링 기준)
+    private static final int WINDOW_SIZE = 32;
+
+    // 중력 분리용 저역 통과 필터 계수
+    private static final float GRAVITY_ALPHA = 0.8f;
+
+    // 분류 임계값 (선형 가속도 크기 기준, 단위 (m/s²)²)
+    private static final float LIGHT_ENERGY_THRESHOLD = 0.05f;
+    private static final float ACTIVE_ENERGY_THRESHOLD = 1.5f;
+    private static final float ACTIVE_VARIANCE_THRESHOLD = 0.5f;
+
+    // 누적 합의 부동소수점 오차를 막기 위해 링버퍼가 이만큼 돌 때마다 합을 재계산
+    private static final int RESUM_INTERVAL = WINDOW_SIZE * 64;
+
+    private final float[] window = new float[WINDOW_SIZE];
+    private int head = 0;
+    private int count = 0;
+    private int sinceResum = 0;
+    private double sum = 0;
+    private double sumSquares = 0;
+
+    private float gravityX, gravityY, gravityZ;
+    private boolean hasGravity = false;
+
+    private float energy = 0f;
+    private float variance = 0f;
+    private int state = STATE_STILL;
+
+    /**
+     * 샘플 하나를 반영하고 현재 활동 상태를 반환
+     */
+    public int addSample(float x, float y, float z) {
+        if (!hasGravity) {
+            // 첫 샘플을 중력으로 간주해 필터 초기 과도응답 제거
+            gravityX = x;
+            gravityY = y;
+            gravityZ = z;
+            hasGravity = true;
+        } else {
+            gravityX = GRAVITY_ALPHA * gravityX + (1 - GRAVITY_ALPHA) * x;
+            gravityY = GRAVITY_ALPHA * gravityY + (1 - GRAVITY_ALPHA) * y;
+            gravityZ = GRAVITY_ALPHA * gravityZ + (1 - GRAVITY_ALPHA) * z;
+        }
+
+        float lx = x - gravityX;
+        float ly = y - gravityY;
+        float lz = z - gravityZ;
+        float magnitude = (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+
+        push(magnitude);
+        updateFeatures();
+        return state;
+    }
+
+    private void push(float value) {
+        if (count == WINDOW_SIZE) {
+            float evicted = window[head];
+            sum -= evicted;
+            sumSquares -= (double) evicted * evicted;
+        } else {
+            count++;
+        }
+
+        window[head] = value;
+        sum += value;
+        sumSquares += (double) value * value;
+        head = (head + 1) % WINDOW_SIZE;
+
+        if (++sinceResum >= RESUM_INTERVAL) {
+            resum();
+        }
+    }
+
+    private void resum() {
+        double s = 0;
+        double sq = 0;
+        for (int i = 0; i < count; i++) {
+            s += window[i];
+            sq += (double) window[i] * window[i];
+        }
+        sum = s;
+        sumSquares = sq;
+        sinceResum = 0;
+    }
+
+    private void updateFeatures() {
+        double mean = sum / count;
+        double meanSquares = sumSquares / count;
+
+        energy = (float) meanSquares;
+        variance = (float) Math.max(0, meanSquares - mean * mean);
+
+        if (energy > ACTIVE_ENERGY_THRESHOLD && variance > ACTIVE_VARIANCE_THRESHOLD) {
+            state = STATE_ACTIVE;
+        } else if (energy > LIGHT_ENERGY_THRESHOLD) {
+            state = STATE_LIGHT;
+        } else {
+            state = STATE_STILL;
+        }
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public float getEnergy() {
+        return energy;
+    }
+
+    public float getVariance() {
+        return variance;
+    }
+
+    /**
+     * 윈도우가 다 찼는지 여부 (채워지기 전 분류는 참고용)
+     */
+    public boolean isWarmedUp() {
+        return count == WINDOW_SIZE;
+    }
+
+    /**
+     * 센서 재등록 등으로 샘플 흐름이 끊겼을 때 초기화
+     */
+    public void reset() {
+        head = 0;
+        count = 0;
+        sinceResum = 0;
+        sum = 0;
+        sumSquares = 0;
+        hasGravity = false;
+        energy = 0f;
+        variance = 0f;
+        state = STATE_STILL;
+    }
+
+    public static String stateName(int state) {
+        switch (state) {
+            case STATE_ACTIVE:
+                return "active";
+            case STATE_LIGHT:
+                return "light";
+            default:
+                return "still";
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.os.Handler;
+import android.util.Log;
+
+/**
+ * 가속도계가 꺼져 있는 동안 저전력 트리거로 움직임 시작을 감시
+ *
+ * 우선순위
+ *  1. TYPE_SIGNIFICANT_MOTION (원샷 웨이크업 센서, 센서 허브에서 판단)
+ *  2. TYPE_STEP_DETECTOR (걸음 한 번마다 이벤트)
+ *  3. 둘 다 없으면 PROBE_INTERVAL 마다 가속도계를 잠깐 켜서 확인 (저속 탐침)
+ *
+ * 탐침은 업타임 타이머가 아니라 CareScheduler 의 깨우기 알람(TASK_MOTION_PROBE)으로 건다.
+ * 기기가 잠들면 업타임 시계도 멈추므로 타이머로는 휴면 중 다시 확인하지 못한다.
+ * 다른 작업 알람과 묶이도록 PROBE_TOLERANCE 만큼 늦어질 수 있고, Doze 중에는 유지보수 창까지 밀린다.
+ *
+ * 모든 콜백은 생성 시 전달한 핸들러 스레드에서 호출된다.
+ */
+public class MotionDutyCycler {
+    private static final String TAG = "MotionDutyCycler";
+
+    // 트리거 센서가 없는 기기에서 가속도계를 잠깐 켜보는 간격
+    private static final long PROBE_INTERVAL = 5 * 60 * 1000; // 5분
+    // 탐침 알람 허용 폭 (다른 작업 알람과 함께 깨어나도록)
+    private static final long PROBE_TOLERANCE = 5 * 60 * 1000;
+
+    public interface Callback {
+        /**
+         * 트리거 센서가 움직임을 감지함 - 가속도계를 다시 켜야 함
+         */
+        void onMotionTrigger(String source);
+
+        /**
+         * 트리거 센서가 없어 탐침 시점이 됨 - 가속도계를 짧게 켜서 확인
+         */
+        void onProbe();
+    }
+
+    private final SensorManager sensorManager;
+    private final CareScheduler scheduler;
+    private final Handler handler;
+    private final Callback callback;
+    private final Sensor significantMotion;
+    private final Sensor stepDetector;
+    private boolean armed = false;
+
+    private final TriggerEventListener triggerListener = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            // 트리거 콜백은 메인 루퍼로 오므로 센서 스레드로 넘김
+            handler.post(() -> fire("significant_motion"));
+        }
+    };
+
+    private final SensorEventListener stepListener = new SensorEventListener() {
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            fire("step_detector");
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+    };
+
+    public MotionDutyCycler(Context context, SensorManager sensorManager, Handler handler, Callback callback) {
+        this.sensorManager = sensorManager;
+        this.scheduler = CareScheduler.getInstance(context);
+        this.handler = handler;
+        this.callback = callback;
+        this.significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+        this.stepDetector = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+
+        Log.d(TAG, "트리거 센서: significantMotion=" + (significantMotion != null) +
+                ", stepDetector=" + (stepDetector != null));
+    }
+
+    public boolean hasTriggerSensor() {
+        return significantMotion != null || stepDetector != null;
+    }
+
+    /**
+     * 가속도계를 끄면서 트리거 감시 시작
+     */
+    public void arm() {
+        if (armed) {
+            return;
+        }
+        armed = true;
+
+        if (significantMotion != null) {
+            sensorManager.requestTriggerSensor(triggerListener, significantMotion);
+        }
+        if (stepDetector != null) {
+            sensorManager.registerListener(stepListener, stepDetector, SensorManager.SENSOR_DELAY_NORMAL, handler);
+        }
+        if (!hasTriggerSensor()) {
+            long due = System.currentTimeMillis() + PROBE_INTERVAL;
+            scheduler.schedule(CareScheduler.TASK_MOTION_PROBE, due, due + PROBE_TOLERANCE,
+                CareScheduler.MODE_WAKEUP);
+        }
+        Log.d(TAG, "트리거 감시 시작 (가속도계 휴면)");
+    }
+
+    /**
+     * 가속도계를 다시 켜면서 트리거 감시 해제
+     */
+    public void disarm() {
+        if (!armed) {
+            return;
+        }
+        armed = false;
+
+        if (significantMotion != null) {
+            sensorManager.cancelTriggerSensor(triggerListener, significantMotion);
+        }
+        if (stepDetector != null) {
+            sensorManager.unregisterListener(stepListener);
+        }
+        if (!hasTriggerSensor()) {
+            scheduler.cancel(CareScheduler.TASK_MOTION_PROBE);
+        }
+    }
+
+    /**
+     * 탐침 알람 (CareScheduler, 작업 스레드) - 감시 중일 때만 탐침
+     */
+    public void onProbeAlarm() {
+        if (armed) {
+            callback.onProbe();
+        }
+    }
+
+    public boolean isArmed() {
+        return armed;
+    }
+
+    private void fire(String source) {
+        if (!armed) {
+            return;
+        }
+        Log.d(TAG, "트리거 감지: " + source);
+        disarm();
+        callback.onMotionTrigger(source);
+    }
+}
@@ -0,0 +1,551 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 프로세스 전체에서 하나만 존재하는 움직임 감지 파이프라인
+ *
+ * 센서 등록은 여기서 한 번만 하고, CareEngineService(백그라운드)와
+ * AndroidBridge(WebView)는 구독자로 결과만 받는다.
+ * 마지막 활동 시각도 이 파이프라인의 ActivityAccumulator 가 유일한 기준이다.
+ *
+ * 센서 이벤트, 버스트 처리, 구독자 콜백은 모두 케어 엔진 공용 작업 스레드(CareWorker)에서 실행된다.
+ */
+public class MotionPipeline implements SensorEventListener {
+    private static final String TAG = "MotionPipeline";
+
+    private static final String PREF_NAME = "motion_detection";
+    private static final String MAX_REPORT_LATENCY_MS = "max_report_latency_ms";
+
+    // 하드웨어 배치(센서 허브 FIFO) 설정
+    // 샘플링 주기는 기존 SENSOR_DELAY_NORMAL(200ms)과 동일하게 유지하고,
+    // maxReportLatency 동안 FIFO에 모았다가 한 번에 전달받아 AP 기상 횟수를 줄인다
+    private static final int SAMPLING_PERIOD_US = 200000;
+    private static final long DEFAULT_MAX_REPORT_LATENCY_MS = 60 * 1000;     // 기본 1분
+    private static final long MAX_ALLOWED_REPORT_LATENCY_MS = 10 * 60 * 1000; // 최대 10분
+
+    // 듀티 사이클: 조용한 상태가 이어지면 가속도계를 끄고 저전력 트리거로만 감시
+    private static final long QUIET_PERIOD = 2 * 60 * 1000;  // 움직임 없이 2분이면 휴면
+    private static final long PROBE_WINDOW = 15 * 1000;      // 탐침 시 가속도계를 켜두는 시간
+    // 알람으로 깨어난 탐침 동안 CPU 유지 (탐침 창 + 여유)
+    private static final long PROBE_WAKE_TIMEOUT = PROBE_WINDOW + 5 * 1000;
+    // 휴면 판정 알람이 늦어져도 되는 폭 (다른 알람 작업과 묶임)
+    private static final long QUIET_TOLERANCE = 60 * 1000;
+
+    /**
+     * 파이프라인 구독자 - 모든 콜백은 센서 스레드에서 호출됨
+     */
+    public interface Listener {
+        /**
+         * 움직임이 포함된 버스트를 처리했을 때 (버스트당 한 번)
+         */
+        void onMotion(int state, float energy, long motionTime);
+
+        /**
+         * 마지막 활동 시각이 디스크에 기록됐을 때
+         */
+        void onActivityFlushed(long lastMotionTime);
+    }
+
+    private static MotionPipeline instance;
+
+    public static synchronized MotionPipeline getInstance(Context context) {
+        if (instance == null) {
+            instance = new MotionPipeline(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final SharedPreferences prefs;
+    private final SensorManager sensorManager;
+    private final Sensor accelerometer;
+    private final Sensor stepCounter;
+    private final Handler handler;
+    private final MotionClassifier classifier = new MotionClassifier();
+    private final ActivityAccumulator accumulator;
+    private final MotionDutyCycler dutyCycler;
+    private final ActivityTimeline timeline;
+    private final PowerManager.WakeLock probeWakeLock;
+    private final CareScheduler scheduler;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // 서비스/브리지가 각각 acquire 하고, 모두 release 하면 센서 해제
+    private int users = 0;
+
+    private long maxReportLatencyMs;
+    private boolean sensorsRegistered = false;
+    private boolean accelerometerActive = false;
+    private boolean probing = false;
+    // 마지막 움직임(또는 가속도계 시작) 시각 - 휴면 판정 기준 (elapsedRealtime, 절전 중에도 흐름)
+    private long lastActiveElapsed = 0;
+    private boolean quietCheckScheduled = false;
+    private volatile int activityState = MotionClassifier.STATE_STILL;
+
+    // 현재 전달 중인 버스트(배치) 상태 - 버스트 단위로 한 번만 처리
+    private boolean burstPending = false;
+    private int burstSamples = 0;
+    private int burstMaxState = MotionClassifier.STATE_STILL;
+    private float burstMaxEnergy = 0f;
+    private long burstMotionTimestampNs = 0;
+    private float burstLatestSteps = -1f;
+
+    // 배치 효과 측정용 통계
+    private int burstsDelivered = 0;
+    private int samplesDelivered = 0;
+    private final PowerStats.Counter eventsCounter = PowerStats.counter(PowerStats.SENSOR + "events");
+    private final PowerStats.Counter burstsCounter = PowerStats.counter(PowerStats.SENSOR + "bursts");
+
+    // 배치로 전달된 이벤트들은 한 번의 루퍼 콜백에서 연속으로 들어오므로
+    // 첫 이벤트에서 post 해두면 배치 전체를 받은 뒤에 한 번만 실행된다
+    private final Runnable burstFlush = new Runnable() {
+        @Override
+        public void run() {
+            processBurst();
+        }
+    };
+
+    // 탐침 창이 끝나면 가속도계 휴면 - 탐침 중에는 wake lock 을 잡고 있으므로 업타임 타이머로 충분
+    private final Runnable probeTimeout = new Runnable() {
+        @Override
+        public void run() {
+            stopSensing();
+        }
+    };
+
+    private MotionPipeline(Context context) {
+        prefs = DirectBootStorage.get(context).getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        stepCounter = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+        maxReportLatencyMs = prefs.getLong(MAX_REPORT_LATENCY_MS, DEFAULT_MAX_REPORT_LATENCY_MS);
+        timeline = ActivityTimeline.getInstance(context);
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        probeWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "LonelyCare:MotionProbe");
+        probeWakeLock.setReferenceCounted(false);
+        scheduler = CareScheduler.getInstance(context);
+
+        // 센서 이벤트도 케어 엔진 공용 작업 스레드에서 처리 (리스너 콜백도 같은 스레드)
+        handler = CareWorker.getHandler();
+
+        accumulator = new ActivityAccumulator(prefs, handler, new ActivityAccumulator.FlushListener() {
+            @Override
+            public void onFlushed(long lastMotionTime) {
+                for (Listener listener : listeners) {
+                    listener.onActivityFlushed(lastMotionTime);
+                }
+            }
+        });
+
+        dutyCycler = new MotionDutyCycler(context, sensorManager, handler, new MotionDutyCycler.Callback() {
+            @Override
+            public void onMotionTrigger(String source) {
+                // 트리거 자체가 움직임의 증거이므로 바로 기록하고 가속도계 재가동
+                recordMotion(MotionClassifier.STATE_LIGHT, 0f, System.currentTimeMillis());
+                startSensing(false);
+            }
+
+            @Override
+            public void onProbe() {
+                // 알람 처리가 끝나도 탐침 창 동안은 잠들지 않도록
+                probeWakeLock.acquire(PROBE_WAKE_TIMEOUT);
+                PowerStats.count(PowerStats.WAKELOCK + "motion_probe");
+                startSensing(true);
+            }
+        });
+    }
+
+    /**
+     * 센서 사용 시작 (사용자 수 증가)
+     */
+    public void acquire() {
+        handler.post(() -> {
+            users++;
+            registerSensors();
+        });
+    }
+
+    /**
+     * 센서 사용 종료 - 마지막 사용자가 해제하면 센서도 해제하고 활동 기록 저장
+     */
+    public void release() {
+        handler.post(() -> {
+            users = Math.max(0, users - 1);
+            if (users == 0) {
+                unregisterSensors();
+                handler.removeCallbacks(burstFlush);
+                if (burstPending) {
+                    processBurst();
+                }
+                accumulator.cancelScheduledFlush();
+                accumulator.flush();
+            }
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 마지막 활동 시각 (메모리 기준, 앱 전체의 단일 기준 시계)
+     */
+    public long getLastMotionTime() {
+        return accumulator.getLastMotionTime();
+    }
+
+    public int getActivityState() {
+        return activityState;
+    }
+
+    public boolean hasAccelerometer() {
+        return accelerometer != null;
+    }
+
+    public boolean isRunning() {
+        return sensorsRegistered;
+    }
+
+    /**
+     * 트리거 센서 없는 기기의 탐침 알람 (CareScheduler, 작업 스레드)
+     */
+    void onProbeAlarm() {
+        dutyCycler.onProbeAlarm();
+    }
+
+    /**
+     * 휴면 판정 알람 (CareScheduler, 작업 스레드) - 그동안 움직임이 있었으면 남은 시간만큼 다시 건다
+     */
+    void onQuietAlarm() {
+        quietCheckScheduled = false;
+        if (!accelerometerActive || probing) {
+            return;
+        }
+        long idle = SystemClock.elapsedRealtime() - lastActiveElapsed;
+        if (idle >= quietPeriod()) {
+            stopSensing();
+        } else {
+            armQuietCheck(quietPeriod() - idle);
+        }
+    }
+
+    /**
+     * 마지막 활동 시각이 없으면(첫 실행) 현재 시각으로 초기화
+     */
+    public void initLastMotionTimeIfEmpty() {
+        handler.post(() -> {
+            if (accumulator.getLastMotionTime() == 0) {
+                accumulator.recordMotion(System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * 메모리에 남은 활동 기록 저장 (onTrimMemory 등)
+     */
+    public void flush() {
+        accumulator.flush();
+    }
+
+    /**
+     * 배치 지연 예산 변경 (감지 지연 ↔ CPU 기상 횟수 트레이드오프)
+     */
+    public void setMaxReportLatency(long requestedMs) {
+        handler.post(() -> updateMaxReportLatency(requestedMs));
+    }
+
+    /**
+     * 주기적 체크용 통계 로그 출력 후 초기화
+     */
+    public void logAndResetStats() {
+        handler.post(() -> {
+            Log.d(TAG, "센서 배치 통계: 버스트 " + burstsDelivered + "회, 샘플 " + samplesDelivered + "개" +
+                    ", 가속도계 " + (accelerometerActive ? "활성" : "휴면"));
+            burstsDelivered = 0;
+            samplesDelivered = 0;
+        });
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        samplesDelivered++;
+        eventsCounter.increment();
+
+        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+            int state = classifier.addSample(event.values[0], event.values[1], event.values[2]);
+
+            // 버스트 안에서 가장 높은 활동 상태와 마지막 움직임 시각만 기억
+            if (state > burstMaxState) {
+                burstMaxState = state;
+            }
+            if (state != MotionClassifier.STATE_STILL) {
+                burstMotionTimestampNs = event.timestamp;
+                burstMaxEnergy = Math.max(burstMaxEnergy, classifier.getEnergy());
+            }
+
+        } else if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
+            // 누적 걸음 수는 버스트의 마지막 값만 의미가 있음
+            burstLatestSteps = event.values[0];
+            burstMotionTimestampNs = Math.max(burstMotionTimestampNs, event.timestamp);
+        }
+
+        burstSamples++;
+        if (!burstPending) {
+            burstPending = true;
+            handler.post(burstFlush);
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // 필요시 구현
+    }
+
+    /**
+     * FIFO에서 한 번에 전달된 이벤트 묶음(버스트)을 하나의 단위로 처리
+     */
+    private void processBurst() {
+        burstPending = false;
+        burstsDelivered++;
+        burstsCounter.increment();
+
+        boolean moved = burstMaxState != MotionClassifier.STATE_STILL;
+        activityState = burstMaxState;
+
+        if (burstLatestSteps >= 0) {
+            float previousSteps = accumulator.getStepCount();
+            long stepTime = toWallClock(burstMotionTimestampNs);
+            if (accumulator.recordSteps(burstLatestSteps, stepTime)) {
+                Log.d(TAG, "걸음 감지됨: " + burstLatestSteps);
+                timeline.recordSteps(stepTime, (int) (burstLatestSteps - previousSteps));
+                moved = true;
+            }
+        }
+
+        if (moved) {
+            Log.d(TAG, "움직임 감지됨 (버스트 " + burstSamples + "개 샘플, 상태 " +
+                    MotionClassifier.stateName(burstMaxState) + ", 에너지 " + burstMaxEnergy + ")");
+            recordMotion(Math.max(burstMaxState, MotionClassifier.STATE_LIGHT), burstMaxEnergy,
+                    toWallClock(burstMotionTimestampNs));
+
+            if (accelerometerActive) {
+                if (probing) {
+                    // 탐침 중 움직임 확인 - 정상 배치 모드로 전환
+                    startSensing(false);
+                } else {
+                    lastActiveElapsed = SystemClock.elapsedRealtime();
+                }
+            } else {
+                // 휴면 중 걸음 수 증가 - 가속도계 재가동
+                startSensing(false);
+            }
+        }
+
+        burstSamples = 0;
+        burstMaxState = MotionClassifier.STATE_STILL;
+        burstMaxEnergy = 0f;
+        burstMotionTimestampNs = 0;
+        burstLatestSteps = -1f;
+    }
+
+    private void recordMotion(int state, float energy, long motionTime) {
+        accumulator.recordMotion(motionTime);
+        timeline.recordMotion(motionTime, energy);
+        for (Listener listener : listeners) {
+            listener.onMotion(state, energy, motionTime);
+        }
+    }
+
+    /**
+     * 센서 이벤트 타임스탬프(elapsedRealtimeNanos 기준)를 벽시계 시각으로 변환
+     * 배치 지연만큼 늦게 전달되더라도 실제 움직임 시각을 기록하기 위함
+     */
+    private long toWallClock(long eventTimestampNs) {
+        long now = System.currentTimeMillis();
+        if (eventTimestampNs <= 0) {
+            return now;
+        }
+        long ageMs = (SystemClock.elapsedRealtimeNanos() - eventTimestampNs) / 1000000L;
+        if (ageMs < 0 || ageMs > MAX_ALLOWED_REPORT_LATENCY_MS * 2) {
+            // 타임스탬프 기준이 다른 기기 대비
+            return now;
+        }
+        return now - ageMs;
+    }
+
+    /**
+     * 센서 리스너 등록
+     * 걸음 수 센서는 하드웨어 카운터라 항상 배치로 등록해 두고,
+     * 가속도계는 움직임이 있을 때만 켠다 (처음에는 켜서 현재 상태를 확인)
+     */
+    private void registerSensors() {
+        if (sensorsRegistered) {
+            return;
+        }
+        sensorsRegistered = true;
+
+        if (stepCounter != null) {
+            int latencyUs = (int) Math.min(Integer.MAX_VALUE, maxReportLatencyMs * 1000L);
+            sensorManager.registerListener(this, stepCounter, SensorManager.SENSOR_DELAY_NORMAL, latencyUs, handler);
+        }
+        startSensing(false);
+    }
+
+    private void unregisterSensors() {
+        cancelQuietCheck();
+        dutyCycler.disarm();
+        releaseProbeWakeLock();
+        sensorManager.unregisterListener(this);
+        accelerometerActive = false;
+        probing = false;
+        sensorsRegistered = false;
+    }
+
+    /**
+     * 가속도계를 켜고 트리거 감시 해제
+     * FIFO가 없는 기기에서는 maxReportLatency가 무시되고 기존처럼 즉시 전달된다
+     *
+     * @param probe 탐침이면 배치 없이 짧게만 켠다
+     */
+    private void startSensing(boolean probe) {
+        if (accelerometer == null || !sensorsRegistered) {
+            return;
+        }
+        dutyCycler.disarm();
+
+        if (accelerometerActive && probing == probe) {
+            scheduleQuietCheck(probe);
+            return;
+        }
+        if (accelerometerActive) {
+            sensorManager.unregisterListener(this, accelerometer);
+        }
+        if (!probe) {
+            releaseProbeWakeLock();
+        }
+
+        int latencyUs = probe ? 0 : (int) Math.min(Integer.MAX_VALUE, effectiveLatencyMs() * 1000L);
+
+        // 재등록 시 샘플 흐름이 끊기므로 분류기 윈도우 초기화
+        classifier.reset();
+        sensorManager.registerListener(this, accelerometer, SAMPLING_PERIOD_US, latencyUs, handler);
+        accelerometerActive = true;
+        probing = probe;
+        Log.d(TAG, "가속도계 " + (probe ? "탐침" : "배치") + " 등록: FIFO " +
+                accelerometer.getFifoMaxEventCount() + "개, 지연 " + (latencyUs / 1000) + "ms");
+
+        scheduleQuietCheck(probe);
+    }
+
+    /**
+     * 가속도계를 끌 시점 예약
+     * 일반 배치 모드는 업타임 타이머로 걸면 절전 중 시계가 멈춰 가속도계가 계속 등록된 채로
+     * 남으므로 CareScheduler 깨우기 알람으로 건다. 알람은 한 번만 걸고, 울렸을 때
+     * lastActiveElapsed 를 보고 판정하므로 움직임 버스트마다 다시 걸지 않는다.
+     */
+    private void scheduleQuietCheck(boolean probe) {
+        if (probe) {
+            cancelQuietCheck();
+            handler.postDelayed(probeTimeout, PROBE_WINDOW);
+            return;
+        }
+        handler.removeCallbacks(probeTimeout);
+        lastActiveElapsed = SystemClock.elapsedRealtime();
+        if (!quietCheckScheduled) {
+            armQuietCheck(quietPeriod());
+        }
+    }
+
+    private void armQuietCheck(long delay) {
+        long due = System.currentTimeMillis() + delay;
+        scheduler.schedule(CareScheduler.TASK_MOTION_QUIET, due, due + QUIET_TOLERANCE, CareScheduler.MODE_WAKEUP);
+        quietCheckScheduled = true;
+    }
+
+    private void cancelQuietCheck() {
+        handler.removeCallbacks(probeTimeout);
+        if (quietCheckScheduled) {
+            scheduler.cancel(CareScheduler.TASK_MOTION_QUIET);
+            quietCheckScheduled = false;
+        }
+    }
+
+    /**
+     * 조용한 상태가 이어져 가속도계를 끄고 트리거 감시로 전환
+     */
+    private void stopSensing() {
+        if (!accelerometerActive) {
+            return;
+        }
+        sensorManager.unregisterListener(this, accelerometer);
+        cancelQuietCheck();
+        accelerometerActive = false;
+        probing = false;
+        activityState = MotionClassifier.STATE_STILL;
+        dutyCycler.arm();
+        releaseProbeWakeLock();
+        Log.d(TAG, "움직임 없음 - 가속도계 휴면");
+    }
+
+    private void releaseProbeWakeLock() {
+        if (probeWakeLock.isHeld()) {
+            probeWakeLock.release();
+        }
+    }
+
+    /**
+     * 배치로 늦게 도착하는 움직임을 놓치지 않도록 휴면 판정은 배치 지연의 두 배 이상 기다린다
+     */
+    private long quietPeriod() {
+        return Math.max(QUIET_PERIOD, effectiveLatencyMs() * 2);
+    }
+
+    /**
+     * FIFO 용량을 넘는 지연을 요청하면 오래된 샘플이 버려지므로
+     * 기기의 FIFO가 담을 수 있는 시간 이내로 제한
+     */
+    private long effectiveLatencyMs() {
+        if (accelerometer == null) {
+            return maxReportLatencyMs;
+        }
+        int fifo = accelerometer.getFifoMaxEventCount();
+        if (fifo <= 0) {
+            return 0;
+        }
+        long fifoCapacityMs = (long) fifo * SAMPLING_PERIOD_US / 1000L;
+        return Math.min(maxReportLatencyMs, fifoCapacityMs);
+    }
+
+    private void updateMaxReportLatency(long requestedMs) {
+        long latency = Math.max(0, Math.min(requestedMs, MAX_ALLOWED_REPORT_LATENCY_MS));
+        if (latency == maxReportLatencyMs) {
+            return;
+        }
+
+        Log.d(TAG, "배치 지연 예산 변경: " + maxReportLatencyMs + "ms -> " + latency + "ms");
+        maxReportLatencyMs = latency;
+        prefs.edit().putLong(MAX_REPORT_LATENCY_MS, latency).apply();
+        PowerStats.count(PowerStats.DISK + PREF_NAME);
+
+        // 가속도계가 켜져 있으면 새 지연값으로 재등록
+        if (accelerometerActive && !probing) {
+            accelerometerActive = false;
+            sensorManager.unregisterListener(this, accelerometer);
+            startSensing(false);
+        }
+    }
+}
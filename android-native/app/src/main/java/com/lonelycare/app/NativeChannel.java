@@ -0,0 +1,270 @@
+package com.lonelycare.app;
+
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 네이티브 ↔ WebView 구조화 메시지 채널 (WebMessagePort)
+ *
+ * 페이지 로드마다 JS 심(window.LonelyCareNative)을 한 번 넣고 메시지 포트를 넘겨준다.
+ * 이후 네이티브 → JS 데이터는 포트로 [{type, data}, ...] JSON 만 보내므로 스크립트를 새로 컴파일하지 않는다.
+ * JS 에서는 LonelyCareNative.on(type, fn) 으로 받고, 등록된 핸들러가 없으면 심이 기존 전역 함수
+ * (onFCMBackgroundMessage, onMotionDetected 등)로 넘긴다. LonelyCareNative.send(type, data) 는
+ * 포트를 거쳐 on(type, listener) 로 등록한 네이티브 리스너로 전달된다 (CareWorker 스레드).
+ * 포트를 지원하지 않는 WebView 에서는 같은 JSON 을 LonelyCareNative.dispatch(...) 호출로 전달한다.
+ * 심은 설치될 때 EventLog 에서 마지막으로 본 순번 이후의 기록을 한 번에 받아 같은 경로로 넘기고
+ * (페이지에 onNativeReplay 가 있으면 {count, truncated, last} 전달), 이미 받은 순번은 다시 넘기지 않는다.
+ */
+public class NativeChannel {
+    private static final String TAG = "NativeChannel";
+
+    // 포트를 넘길 때 쓰는 표식 (심이 이 메시지의 포트만 받음)
+    private static final String PORT_HANDSHAKE = "lonelycare:port";
+    // 포트를 넘기는 페이지 (앱 assets)
+    private static final String APP_PAGE_PREFIX = "file:///android_asset/";
+
+    /**
+     * JS 에서 보낸 메시지 수신
+     */
+    public interface Listener {
+        void onMessage(Object data);
+    }
+
+    // 페이지마다 한 번 실행하는 JS 심 - 메시지 종류별 라우팅과 기존 전역 함수 호환
+    static final String SHIM =
+        "(function() {" +
+        "  if (window.LonelyCareNative) { return; }" +
+        "  var handlers = {}, port = null, outbox = [];" +
+        "  var SEQ_KEY = 'lonelycare.eventSeq', seen = 0, replayedUpTo = 0;" +
+        "  try { seen = parseInt(localStorage.getItem(SEQ_KEY) || '0', 10) || 0; } catch (e) {}" +
+        "  function markSeq(seq) {" +
+        "    if (seq <= seen) { return; }" +
+        "    seen = seq;" +
+        "    try { localStorage.setItem(SEQ_KEY, String(seq)); } catch (e) {}" +
+        "  }" +
+        "  var legacy = {" +
+        "    fcm_messages: function(d) {" +
+        "      if (window.onFCMBackgroundMessages) { window.onFCMBackgroundMessages(d); }" +
+        "      else if (window.onFCMBackgroundMessage) { d.forEach(function(m) { window.onFCMBackgroundMessage(m); }); }" +
+        "      else { console.log('📱 FCM 백그라운드 메시지 수신:', d); }" +
+        "    }," +
+        "    fcm_token: function(d) {" +
+        "      if (window.onFCMTokenReceived) { window.onFCMTokenReceived(d); }" +
+        "      else { console.log('⚠️ onFCMTokenReceived 핸들러가 없음'); window.androidFCMToken = d; }" +
+        "    }," +
+        "    motion: function(d) { if (window.onMotionDetected) { window.onMotionDetected(d); } }," +
+        "    no_motion: function(d) { if (window.onNoMotionAlert) { window.onNoMotionAlert(d); } }," +
+        "    sensor_activity: function(d) {" +
+        "      if (typeof updateActivityFromSensor === 'function') { updateActivityFromSensor(d); }" +
+        "    }," +
+        "    heartbeat: function(d) {" +
+        "      if (typeof sendHeartbeatToPair === 'function') {" +
+        "        d.pairs.forEach(function(p) { sendHeartbeatToPair(p, d.timestamp); });" +
+        "      }" +
+        "      if (d.check !== false && typeof checkAllHeartbeats === 'function') { checkAllHeartbeats(d.timestamp); }" +
+        "    }," +
+        "    session_refresh: function() {" +
+        "      if (typeof refreshSessionFromBackground === 'function') { refreshSessionFromBackground(); }" +
+        "    }," +
+        "    notification_permission: function(d) {" +
+        "      var fn = d.granted ? window.onNotificationPermissionGranted : window.onNotificationPermissionDenied;" +
+        "      if (fn) { fn(); } else { console.log('🔔 알림 권한:', d.granted); }" +
+        "    }," +
+        "    notification_opened: function(d) {" +
+        "      if (window.onNotificationOpened) { window.onNotificationOpened(d); }" +
+        "      else { console.log('📱 알림에서 앱 열림:', d); }" +
+        "    }," +
+        "    call_119: function(d) {" +
+        "      if (window.handle119Emergency) { window.handle119Emergency(d); }" +
+        "      else { alert('119에 ' + d + '님에 대한 응급신고를 진행합니다.'); }" +
+        "    }," +
+        "    oauth: function(d) {" +
+        "      if (d.code) {" +
+        "        if (window.handleOAuthCallback) { window.handleOAuthCallback(d.code); }" +
+        "        else { console.log('❌ handleOAuthCallback 함수 없음'); }" +
+        "      } else if (window.onKakaoLoginFailure) { window.onKakaoLoginFailure(d.error); }" +
+        "    }," +
+        "    kakao_login: function(d) {" +
+        "      if (d.status) { console.log(d.status); return; }" +
+        "      console.error('🚨 생명구조 시스템: AndroidBridge 로그인 오류 - ' + d.error);" +
+        "      if (window.onKakaoLoginError) { window.onKakaoLoginError(d.error); }" +
+        "      else { console.warn('⚠️ onKakaoLoginError 콜백이 없습니다'); }" +
+        "    }" +
+        "  };" +
+        "  function dispatch(batch) {" +
+        "    batch.forEach(function(m) {" +
+        "      if (m.seq) {" +
+        "        if (m.seq <= replayedUpTo) { return; }" +
+        "        markSeq(m.seq);" +
+        "      }" +
+        "      try {" +
+        "        var list = handlers[m.type];" +
+        "        if (list && list.length) { list.forEach(function(fn) { fn(m.data); }); }" +
+        "        else if (legacy[m.type]) { legacy[m.type](m.data); }" +
+        "      } catch (e) { console.error('native message', m.type, e); }" +
+        "    });" +
+        "  }" +
+        "  function catchUp() {" +
+        "    if (!window.AndroidBridge || !window.AndroidBridge.getEventsSince) { return; }" +
+        "    var r = JSON.parse(window.AndroidBridge.getEventsSince(seen));" +
+        "    dispatch(r.events);" +
+        "    replayedUpTo = Math.max(replayedUpTo, r.last);" +
+        "    if (r.last < seen) { seen = 0; }" +
+        "    markSeq(r.last);" +
+        "    var info = {count: r.events.length, truncated: r.truncated, last: r.last};" +
+        "    if (window.onNativeReplay) { window.onNativeReplay(info); }" +
+        "    return info;" +
+        "  }" +
+        "  window.LonelyCareNative = {" +
+        "    on: function(type, fn) { (handlers[type] = handlers[type] || []).push(fn); }," +
+        "    off: function(type, fn) {" +
+        "      var list = handlers[type] || [], i = list.indexOf(fn);" +
+        "      if (i >= 0) { list.splice(i, 1); }" +
+        "    }," +
+        "    send: function(type, data) {" +
+        "      var msg = JSON.stringify({type: type, data: data === undefined ? null : data});" +
+        "      if (port) { port.postMessage(msg); } else { outbox.push(msg); }" +
+        "    }," +
+        "    dispatch: dispatch," +
+        "    catchUp: catchUp," +
+        "    lastSeq: function() { return seen; }" +
+        "  };" +
+        "  window.addEventListener('message', function(e) {" +
+        "    if (e.data !== '" + PORT_HANDSHAKE + "' || !e.ports || !e.ports[0]) { return; }" +
+        "    port = e.ports[0];" +
+        "    port.onmessage = function(ev) { dispatch(JSON.parse(ev.data)); };" +
+        "    outbox.splice(0).forEach(function(m) { port.postMessage(m); });" +
+        "  });" +
+        "  try { catchUp(); } catch (e) { console.error('native catch-up', e); }" +
+        "})();";
+
+    private final ConcurrentHashMap<String, Listener> listeners = new ConcurrentHashMap<>();
+
+    // 현재 페이지에 넘긴 포트 (메인 스레드에서만 변경)
+    private volatile WebMessagePortCompat port;
+
+    /**
+     * 포트 채널을 쓸 수 있는 WebView 인지
+     */
+    static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK);
+    }
+
+    /**
+     * JS 에서 보내는 메시지 종류별 리스너 등록 (종류당 하나)
+     */
+    public void on(String type, Listener listener) {
+        listeners.put(type, listener);
+    }
+
+    boolean isOpen() {
+        return port != null;
+    }
+
+    /**
+     * 새 페이지에 심을 넣고 포트 연결 (메인 스레드, onPageFinished) - 끝나면 onReady 실행
+     */
+    void open(WebView webView, Runnable onReady) {
+        close();
+        webView.evaluateJavascript(SHIM, result -> {
+            if (isSupported() && isAppPage(webView.getUrl())) {
+                try {
+                    WebMessagePortCompat[] ports = WebViewCompat.createWebMessageChannel(webView);
+                    ports[0].setWebMessageCallback(CareWorker.getHandler(),
+                        new WebMessagePortCompat.WebMessageCallbackCompat() {
+                            @Override
+                            public void onMessage(WebMessagePortCompat source, WebMessageCompat message) {
+                                receive(message.getData());
+                            }
+                        });
+                    // file:// 페이지는 origin 이 없으므로 "*" 로 전달 (앱 페이지인지는 위에서 확인)
+                    WebViewCompat.postWebMessage(webView,
+                        new WebMessageCompat(PORT_HANDSHAKE, new WebMessagePortCompat[]{ports[1]}), Uri.parse("*"));
+                    port = ports[0];
+                    Log.d(TAG, "메시지 포트 연결 완료");
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "메시지 포트 연결 실패 - 스크립트 전달로 대체", e);
+                }
+            }
+            onReady.run();
+        });
+    }
+
+    /**
+     * 심과 포트를 넘겨도 되는 페이지인지 - 앱에 포함된 페이지만 (카카오 로그인 등 외부 페이지 제외)
+     */
+    static boolean isAppPage(String url) {
+        return url != null && url.startsWith(APP_PAGE_PREFIX);
+    }
+
+    /**
+     * 페이지 이동/종료 - 이전 페이지의 포트는 더 쓰지 않음
+     */
+    void close() {
+        WebMessagePortCompat old = port;
+        port = null;
+        if (old != null) {
+            try {
+                old.close();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "메시지 포트 닫기 실패", e);
+            }
+        }
+    }
+
+    /**
+     * 메시지 묶음 전송 ([{type, data}, ...] JSON) - 포트가 없으면 false
+     */
+    boolean send(String batchJson) {
+        WebMessagePortCompat target = port;
+        if (target == null) {
+            return false;
+        }
+        try {
+            target.postMessage(new WebMessageCompat(batchJson));
+            return true;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "메시지 포트 전송 실패", e);
+            return false;
+        }
+    }
+
+    /**
+     * 포트가 없을 때 같은 묶음을 심으로 넘기는 스크립트 (데이터 JSON 만 바뀜)
+     */
+    static String dispatchScript(String batchJson) {
+        return "window.LonelyCareNative && window.LonelyCareNative.dispatch(" + batchJson + ");";
+    }
+
+    private void receive(String raw) {
+        String type = null;
+        try {
+            JSONObject message = new JSONObject(raw);
+            type = message.getString("type");
+            Listener listener = listeners.get(type);
+            if (listener == null) {
+                Log.w(TAG, "처리할 리스너 없는 메시지: " + type);
+                return;
+            }
+            listener.onMessage(message.isNull("data") ? null : message.get("data"));
+        } catch (JSONException e) {
+            Log.e(TAG, "잘못된 메시지 형식: " + raw, e);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "메시지 처리 실패: " + type, e);
+        }
+    }
+}
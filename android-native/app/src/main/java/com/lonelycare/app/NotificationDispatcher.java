@@ -0,0 +1,505 @@
+package com.lonelycare.app;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Color;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Vibrator;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 친구 상태 알림의 유일한 출구 (FCM, JS 브리지 공용)
+ *
+ * 채널은 프로세스 시작 시 한 번에 등록하고(CareApplication), 레벨별 설정은 불변 상수로,
+ * 친구별 PendingIntent 는 LRU 로 재사용한다. 알림마다 채널/설정/인텐트를 새로 만들지 않으므로
+ * 알림이 몰려도 표시 지연이 일정하다.
+ */
+public class NotificationDispatcher {
+    private static final String TAG = "NotificationDispatcher";
+
+    // 알림 채널 ID들 - 생명구조 시스템 우선순위별
+    static final String CHANNEL_EMERGENCY = "lonely_care_emergency";    // 응급상황
+    static final String CHANNEL_DANGER = "lonely_care_danger";          // 위험상황
+    static final String CHANNEL_WARNING = "lonely_care_warning";        // 주의상황
+    static final String CHANNEL_GENERAL = "lonely_care_general";        // 일반 알림
+    // JS 브리지 showNotification 채널
+    static final String CHANNEL_BRIDGE = "lonely_care_notifications";
+
+    private static final int FALLBACK_NOTIFICATION_ID = 9999;
+    private static final int GROUP_SUMMARY_ID = 9998;
+    private static final int INACTIVITY_NOTIFICATION_ID = 9997;
+    private static final String GROUP_KEY_ALERTS = "lonely_care_alerts";
+    // 시스템은 앱당 초당 notify 횟수를 제한하므로 묶음의 개별 알림은 심각한 순으로 일부만
+    private static final int MAX_GROUP_CHILDREN = 4;
+    private static final int MAX_SUMMARY_LINES = 6;
+    // 응급 추가 진동 최소 간격 (응급이 연달아 와도 진동은 한 번)
+    private static final long EMERGENCY_VIBRATION_INTERVAL = 10 * 1000;
+    private static final int BRIDGE_NOTIFICATION_ID_START = 100;
+    private static final int MAX_CACHED_INTENTS = 64;
+
+    private static final int COLOR_DANGER = 0xFFFF6B35;
+    private static final long[] EMERGENCY_EXTRA_VIBRATION = {0, 1000, 200, 1000, 200, 1000};
+    private static final long[] BRIDGE_VIBRATION = {0, 1000, 500, 1000};
+
+    /**
+     * 알림 레벨별 설정 (불변)
+     */
+    static final class Level {
+        final String name;
+        // 클수록 심각 (묶음 요약 채널 선택용)
+        final int severity;
+        final String channelId;
+        final int priority;
+        final String category;
+        final int color;
+        final long[] vibrationPattern;
+        final boolean soundEnabled;
+
+        Level(String name, int severity, String channelId, int priority, String category, int color,
+              long[] vibrationPattern, boolean soundEnabled) {
+            this.name = name;
+            this.severity = severity;
+            this.channelId = channelId;
+            this.priority = priority;
+            this.category = category;
+            this.color = color;
+            this.vibrationPattern = vibrationPattern;
+            this.soundEnabled = soundEnabled;
+        }
+    }
+
+    static final Level EMERGENCY = new Level("emergency", 3, CHANNEL_EMERGENCY,
+        NotificationCompat.PRIORITY_MAX, NotificationCompat.CATEGORY_ALARM, Color.RED,
+        new long[]{0, 500, 100, 500, 100, 500, 100, 500}, true);
+    static final Level DANGER = new Level("danger", 2, CHANNEL_DANGER,
+        NotificationCompat.PRIORITY_HIGH, NotificationCompat.CATEGORY_STATUS, COLOR_DANGER,
+        new long[]{0, 300, 100, 300, 100, 300}, true);
+    static final Level WARNING = new Level("warning", 1, CHANNEL_WARNING,
+        NotificationCompat.PRIORITY_DEFAULT, NotificationCompat.CATEGORY_STATUS, Color.YELLOW,
+        new long[]{0, 200, 100, 200}, true);
+    static final Level GENERAL = new Level("general", 0, CHANNEL_GENERAL,
+        NotificationCompat.PRIORITY_DEFAULT, NotificationCompat.CATEGORY_MESSAGE, Color.BLUE,
+        null, false);
+
+    /**
+     * 알림 레벨 문자열 → 설정 (모르는 값은 일반)
+     */
+    static Level level(String alertLevel) {
+        if (alertLevel == null) {
+            return GENERAL;
+        }
+        switch (alertLevel) {
+            case "emergency":
+                return EMERGENCY;
+            case "danger":
+                return DANGER;
+            case "warning":
+                return WARNING;
+            default:
+                return GENERAL;
+        }
+    }
+
+    private static NotificationDispatcher instance;
+
+    public static synchronized NotificationDispatcher getInstance(Context context) {
+        if (instance == null) {
+            instance = new NotificationDispatcher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final NotificationManager notificationManager;
+    private final Uri soundUri;
+
+    // 친구/레벨별 PendingIntent (가장 오래 안 쓴 것부터 버림)
+    private final Map<String, PendingIntent> intentCache =
+        new LinkedHashMap<String, PendingIntent>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PendingIntent> eldest) {
+                return size() > MAX_CACHED_INTENTS;
+            }
+        };
+
+    private int bridgeNotificationId = BRIDGE_NOTIFICATION_ID_START;
+    private long lastEmergencyVibration = 0;
+
+    private NotificationDispatcher(Context context) {
+        this.context = context;
+        this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        this.soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+        registerChannels();
+    }
+
+    /**
+     * 친구 상태 알림 (FCM) - 레벨별 차등 표시
+     */
+    public void showAlert(String title, String body, String alertLevel, String friendId, String friendName) {
+        Level level = level(alertLevel);
+        int notificationId = notificationId(friendId, level);
+        notificationManager.notify(notificationId,
+            alertBuilder(title, body, alertLevel, friendId, friendName).build());
+        Log.d(TAG, String.format("✅ %s 레벨 알림 표시 완료 (ID: %d)", level.name, notificationId));
+
+        if (level == EMERGENCY) {
+            vibrateEmergency();
+        }
+    }
+
+    /**
+     * 여러 친구 알림 묶음 - 그룹 요약 알림 하나만 울리고 개별 알림은 조용히 그룹에 넣음
+     */
+    void showAlertGroup(List<AlertPipeline.Alert> alerts) {
+        List<AlertPipeline.Alert> sorted = new ArrayList<>(alerts);
+        Collections.sort(sorted, (a, b) -> b.level.severity - a.level.severity);
+        Level top = sorted.get(0).level;
+
+        for (int i = 0; i < sorted.size() && i < MAX_GROUP_CHILDREN; i++) {
+            AlertPipeline.Alert alert = sorted.get(i);
+            NotificationCompat.Builder child =
+                alertBuilder(alert.title, alert.body, alert.alertLevel, alert.friendId, alert.friendName)
+                    .setGroup(GROUP_KEY_ALERTS)
+                    .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+            notificationManager.notify(notificationId(alert.friendId, alert.level), child.build());
+        }
+
+        String title = "👥 친구 " + sorted.size() + "명 상태 알림";
+        NotificationCompat.InboxStyle inbox = new NotificationCompat.InboxStyle().setBigContentTitle(title);
+        for (int i = 0; i < sorted.size() && i < MAX_SUMMARY_LINES; i++) {
+            AlertPipeline.Alert alert = sorted.get(i);
+            inbox.addLine(alert.friendName != null ? alert.friendName + ": " + alert.title : alert.title);
+        }
+        if (sorted.size() > MAX_SUMMARY_LINES) {
+            inbox.setSummaryText("외 " + (sorted.size() - MAX_SUMMARY_LINES) + "건");
+        }
+
+        NotificationCompat.Builder summary = new NotificationCompat.Builder(context, top.channelId)
+            .setSmallIcon(R.drawable.ic_notification)
+            .setContentTitle(title)
+            .setContentText(sorted.get(0).title)
+            .setStyle(inbox)
+            .setNumber(sorted.size())
+            .setGroup(GROUP_KEY_ALERTS)
+            .setGroupSummary(true)
+            .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+            .setAutoCancel(true)
+            .setPriority(top.priority)
+            .setCategory(top.category)
+            .setContentIntent(friendIntent(null, null))
+            .setColor(top.color);
+        if (top.vibrationPattern != null) {
+            summary.setVibrate(top.vibrationPattern);
+        }
+        if (top.soundEnabled) {
+            summary.setSound(soundUri);
+        }
+        notificationManager.notify(GROUP_SUMMARY_ID, summary.build());
+        Log.d(TAG, String.format("✅ 묶음 알림 표시 완료 (%d건, 최고 레벨 %s)", sorted.size(), top.name));
+    }
+
+    private NotificationCompat.Builder alertBuilder(String title, String body, String alertLevel,
+                                                    String friendId, String friendName) {
+        Level level = level(alertLevel);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, level.channelId)
+            .setSmallIcon(R.drawable.ic_notification)
+            .setContentTitle(title)
+            .setContentText(body)
+            .setStyle(new NotificationCompat.BigTextStyle().bigText(body))
+            .setAutoCancel(true)
+            .setPriority(level.priority)
+            .setCategory(level.category)
+            .setContentIntent(friendIntent(friendId, alertLevel))
+            .setColor(level.color);
+
+        // 응급상황 특별 설정
+        if (level == EMERGENCY) {
+            // 119 신고 액션 버튼 추가
+            builder.addAction(R.drawable.ic_emergency, "🚨 119 신고", call119Intent(friendId, friendName));
+
+            // 사용자가 직접 닫을 때까지 유지
+            builder.setOngoing(true);
+            builder.setTimeoutAfter(0); // 타임아웃 없음
+        }
+        if (level.vibrationPattern != null) {
+            builder.setVibrate(level.vibrationPattern);
+        }
+        if (level.soundEnabled) {
+            builder.setSound(soundUri);
+        }
+        return builder;
+    }
+
+    /**
+     * 본인 무활동 단계 알림 (InactivityMonitor) - 단계가 올라가면 같은 알림을 갱신
+     */
+    public void showInactivityAlert(String alertLevel, int hours) {
+        Level level = level(alertLevel);
+        String title = "⏰ " + hours + "시간 동안 움직임이 없어요";
+        String body = "괜찮으시면 앱을 열어 안부를 확인해주세요.";
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, level.channelId)
+            .setSmallIcon(R.drawable.ic_notification)
+            .setContentTitle(title)
+            .setContentText(body)
+            .setStyle(new NotificationCompat.BigTextStyle().bigText(body))
+            .setAutoCancel(true)
+            .setPriority(level.priority)
+            .setCategory(level.category)
+            .setContentIntent(appIntent())
+            .setColor(level.color);
+        if (level.vibrationPattern != null) {
+            builder.setVibrate(level.vibrationPattern);
+        }
+        if (level.soundEnabled) {
+            builder.setSound(soundUri);
+        }
+        notificationManager.notify(INACTIVITY_NOTIFICATION_ID, builder.build());
+        Log.d(TAG, String.format("✅ 무활동 %d시간 알림 표시 완료 (%s)", hours, level.name));
+
+        if (level == EMERGENCY) {
+            vibrateEmergency();
+        }
+    }
+
+    /**
+     * 오류 시 긴급 대체 알림 (생명구조 안전장치)
+     */
+    public void showFallback() {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_EMERGENCY)
+            .setSmallIcon(R.drawable.ic_notification)
+            .setContentTitle("🚨 외롭지마 긴급 알림")
+            .setContentText("친구 상태를 확인해주세요 (시스템 오류 발생)")
+            .setPriority(NotificationCompat.PRIORITY_MAX)
+            .setCategory(NotificationCompat.CATEGORY_ALARM)
+            .setContentIntent(friendIntent(null, null))
+            .setAutoCancel(true)
+            .setColor(Color.RED);
+        notificationManager.notify(FALLBACK_NOTIFICATION_ID, builder.build());
+        Log.d(TAG, "🛡️ 긴급 대체 알림 표시 완료");
+    }
+
+    /**
+     * JS 브리지 알림 - 제목의 이모지/키워드로 레벨 판단
+     */
+    public void showBridgeNotification(String title, String message) {
+        int icon = android.R.drawable.ic_dialog_alert;
+        int color = 0xFFFF0000; // 기본 빨간색
+        String category = NotificationCompat.CATEGORY_ALARM;
+        if (title.contains("🟡") || title.contains("주의")) {
+            color = 0xFFFFC107; // 노란색
+            icon = android.R.drawable.ic_dialog_info;
+            category = NotificationCompat.CATEGORY_STATUS;
+        } else if (title.contains("🟠") || title.contains("경고")) {
+            color = 0xFFFF6F00; // 주황색
+        } else if (title.contains("🔴") || title.contains("긴급")) {
+            color = 0xFFDC3545; // 진한 빨간색
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_BRIDGE)
+            .setSmallIcon(icon)
+            .setContentTitle("🚨 lonely-care 알림")
+            .setContentText(title)
+            .setSubText("친구 안전 확인 시스템")
+            .setStyle(new NotificationCompat.BigTextStyle()
+                .bigText(message)
+                .setBigContentTitle(title) // 이미 이모지가 포함된 제목 사용
+                .setSummaryText("lonely-care"))
+            .setPriority(NotificationCompat.PRIORITY_MAX)
+            .setCategory(category)
+            .setContentIntent(appIntent())
+            .setAutoCancel(true)
+            .setColor(color)
+            .setVibrate(BRIDGE_VIBRATION)
+            .setSound(android.provider.Settings.System.DEFAULT_NOTIFICATION_URI)
+            .setLights(color, 3000, 3000)
+            .setOngoing(false)
+            .setShowWhen(true);
+
+        int id;
+        synchronized (this) {
+            id = bridgeNotificationId++;
+        }
+        notificationManager.notify(id, builder.build());
+        Log.d(TAG, "네이티브 알림 표시 완료");
+    }
+
+    /**
+     * 알림 ID (친구별, 레벨별 고유 - 같은 친구의 같은 레벨 알림은 갱신)
+     */
+    static int notificationId(String friendId, Level level) {
+        String combined = (friendId != null ? friendId : "unknown") + "_" + level.name;
+        return Math.abs(combined.hashCode());
+    }
+
+    /**
+     * 알림을 누르면 해당 친구 화면으로 (친구별로 requestCode 를 달리해 extras 가 서로 덮이지 않게)
+     */
+    PendingIntent friendIntent(String friendId, String alertLevel) {
+        String key = "open|" + friendId + "|" + alertLevel;
+        synchronized (intentCache) {
+            PendingIntent cached = intentCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            Intent intent = new Intent(context, MainActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            if (friendId != null) {
+                intent.putExtra("friend_id", friendId);
+                intent.putExtra("alert_level", alertLevel);
+                intent.putExtra("from_notification", true);
+            }
+            PendingIntent pendingIntent = PendingIntent.getActivity(context, key.hashCode(), intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            intentCache.put(key, pendingIntent);
+            return pendingIntent;
+        }
+    }
+
+    private PendingIntent call119Intent(String friendId, String friendName) {
+        String key = "call119|" + friendId;
+        synchronized (intentCache) {
+            PendingIntent cached = intentCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            Intent intent = new Intent(context, MainActivity.class);
+            intent.putExtra("action", "call_119");
+            intent.putExtra("friend_id", friendId);
+            intent.putExtra("friend_name", friendName);
+            PendingIntent pendingIntent = PendingIntent.getActivity(context, key.hashCode(), intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            intentCache.put(key, pendingIntent);
+            return pendingIntent;
+        }
+    }
+
+    private PendingIntent appIntent() {
+        String key = "app";
+        synchronized (intentCache) {
+            PendingIntent cached = intentCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            Intent intent = new Intent(context, MainActivity.class);
+            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+            PendingIntent pendingIntent = PendingIntent.getActivity(context, key.hashCode(), intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            intentCache.put(key, pendingIntent);
+            return pendingIntent;
+        }
+    }
+
+    /**
+     * 응급상황 추가 진동 (EMERGENCY_VIBRATION_INTERVAL 안에 한 번만)
+     */
+    private void vibrateEmergency() {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - lastEmergencyVibration < EMERGENCY_VIBRATION_INTERVAL) {
+                return;
+            }
+            lastEmergencyVibration = now;
+        }
+        try {
+            Vibrator vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+            if (vibrator == null || !vibrator.hasVibrator()) {
+                return;
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                vibrator.vibrate(android.os.VibrationEffect.createWaveform(EMERGENCY_EXTRA_VIBRATION, -1));
+            } else {
+                vibrator.vibrate(EMERGENCY_EXTRA_VIBRATION, -1);
+            }
+            Log.d(TAG, "🔔 응급상황 추가 진동 실행");
+        } catch (Exception e) {
+            Log.e(TAG, "❌ 응급 진동 실패", e);
+        }
+    }
+
+    /**
+     * 알림 채널 등록 - 프로세스당 한 번, 시스템 호출도 한 번
+     */
+    private void registerChannels() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        // 응급 채널
+        NotificationChannel emergencyChannel = new NotificationChannel(
+            CHANNEL_EMERGENCY,
+            "🚨 응급상황 알림",
+            NotificationManager.IMPORTANCE_HIGH
+        );
+        emergencyChannel.setDescription("72시간 이상 무응답 - 119 신고 필요");
+        emergencyChannel.enableLights(true);
+        emergencyChannel.setLightColor(Color.RED);
+        emergencyChannel.enableVibration(true);
+        emergencyChannel.setVibrationPattern(EMERGENCY.vibrationPattern);
+        emergencyChannel.setLockscreenVisibility(NotificationCompat.VISIBILITY_PUBLIC);
+        emergencyChannel.setBypassDnd(true); // 방해금지 모드 우회
+
+        // 위험 채널
+        NotificationChannel dangerChannel = new NotificationChannel(
+            CHANNEL_DANGER,
+            "🟠 위험상황 알림",
+            NotificationManager.IMPORTANCE_HIGH
+        );
+        dangerChannel.setDescription("48시간 이상 무응답");
+        dangerChannel.enableLights(true);
+        dangerChannel.setLightColor(COLOR_DANGER);
+        dangerChannel.enableVibration(true);
+        dangerChannel.setVibrationPattern(DANGER.vibrationPattern);
+
+        // 주의 채널
+        NotificationChannel warningChannel = new NotificationChannel(
+            CHANNEL_WARNING,
+            "🟡 주의상황 알림",
+            NotificationManager.IMPORTANCE_DEFAULT
+        );
+        warningChannel.setDescription("24시간 이상 무응답");
+        warningChannel.enableLights(true);
+        warningChannel.setLightColor(Color.YELLOW);
+        warningChannel.enableVibration(true);
+        warningChannel.setVibrationPattern(WARNING.vibrationPattern);
+
+        // 일반 채널
+        NotificationChannel generalChannel = new NotificationChannel(
+            CHANNEL_GENERAL,
+            "📱 일반 알림",
+            NotificationManager.IMPORTANCE_DEFAULT
+        );
+        generalChannel.setDescription("시스템 알림");
+
+        // 브리지 알림 채널
+        NotificationChannel bridgeChannel = new NotificationChannel(
+            CHANNEL_BRIDGE,
+            "친구 상태 알림",
+            NotificationManager.IMPORTANCE_HIGH
+        );
+        bridgeChannel.setDescription("친구의 안전 상태를 알려주는 중요한 알림입니다");
+        bridgeChannel.enableVibration(true);
+        bridgeChannel.setVibrationPattern(new long[]{0, 500, 200, 500});
+
+        List<NotificationChannel> channels = new ArrayList<>();
+        channels.add(emergencyChannel);
+        channels.add(dangerChannel);
+        channels.add(warningChannel);
+        channels.add(generalChannel);
+        channels.add(bridgeChannel);
+        notificationManager.createNotificationChannels(channels);
+        Log.d(TAG, "✅ 생명구조 시스템 알림 채널 생성 완료");
+    }
+}
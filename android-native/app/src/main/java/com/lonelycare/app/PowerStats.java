@@ -0,0 +1,236 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 기기 비용(기상/전력) 계측 - 모듈별 카운터와 누적 시간
+ *
+ * 카운터 이름은 "분류.출처" 형식이다.
+ *  - wakeup.*: 기기를 깨운 원인 (통합 알람, FCM)
+ *  - task.*: 스케줄러 작업 실행 횟수 (출처별)
+ *  - wakelock.*: wake lock 획득 횟수, wakelock.*_ms: 보유 시간
+ *  - sensor.*: 센서 이벤트 전달/버스트 처리 횟수
+ *  - broadcast.*: 보낸 브로드캐스트
+ *  - service.*: 서비스 생성/시스템 재시작
+ *  - disk.*: 저장 파일별 쓰기 횟수
+ *  - notification.*: 표시한 알림/묶음, 버린 중복 알림
+ *  - webview.*: WebView 로 보낸 이벤트/묶음 실행, 합쳐지거나 버려진 이벤트
+ *
+ * 증가는 스레드별로 나눈 원자 카운터라 센서 콜백 같은 빈번한 경로에서도 잠금이 없다.
+ * (LongAdder 는 API 24 부터라 직접 구현)
+ * 한 시간마다 지난 집계 이후 증가분을 시간대별로 기기 보호 저장소에 합산해 MAX_HOURS 만큼 보관한다.
+ */
+public class PowerStats {
+    private static final String TAG = "PowerStats";
+    private static final String PREF_NAME = "power_stats";
+    private static final String KEY_HOUR_PREFIX = "hour_";
+
+    public static final String WAKEUP = "wakeup.";
+    public static final String TASK = "task.";
+    public static final String WAKELOCK = "wakelock.";
+    public static final String SENSOR = "sensor.";
+    public static final String BROADCAST = "broadcast.";
+    public static final String SERVICE = "service.";
+    public static final String DISK = "disk.";
+    public static final String NOTIFICATION = "notification.";
+    public static final String WEBVIEW = "webview.";
+
+    private static final long HOUR = 60 * 60 * 1000;
+    // 시간 경계 전 이 안에서 다른 작업과 함께 집계 (기기를 깨우지 않음)
+    private static final long ROLLUP_TOLERANCE = 15 * 60 * 1000;
+    private static final int MAX_HOURS = 48;
+
+    /**
+     * 스레드별로 칸을 나눈 카운터 - 서로 다른 스레드의 증가가 같은 캐시 라인을 다투지 않도록
+     */
+    public static final class Counter {
+        private static final int STRIPES = 8;
+        // 한 칸을 64바이트(long 8개)로 띄워 false sharing 방지
+        private static final int PAD = 8;
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+        public void add(long delta) {
+            int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+            cells.getAndAdd(stripe * PAD, delta);
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public long sum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.get(i * PAD);
+            }
+            return sum;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 이름별 카운터 (빈번한 경로는 필드에 보관해 두고 사용)
+     */
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    public static void count(String name) {
+        counter(name).add(1);
+    }
+
+    public static void add(String name, long delta) {
+        counter(name).add(delta);
+    }
+
+    private static PowerStats instance;
+
+    public static synchronized PowerStats getInstance(Context context) {
+        if (instance == null) {
+            instance = new PowerStats(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final SharedPreferences prefs;
+    private final CareScheduler scheduler;
+
+    // 마지막 집계 시점의 누적값
+    private final Map<String, Long> lastTotals = new HashMap<>();
+    private final long processStart = System.currentTimeMillis();
+
+    private final Runnable rollupTask = () -> {
+        rollup();
+        scheduleRollup();
+    };
+
+    private PowerStats(Context context) {
+        this.prefs = DirectBootStorage.get(context).getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.scheduler = CareScheduler.getInstance(context);
+        scheduleRollup();
+    }
+
+    /**
+     * 지난 집계 이후 증가분을 현재 시간대 기록에 합산 (언제 불러도 안전, onTrimMemory 등)
+     */
+    public synchronized void rollup() {
+        long now = System.currentTimeMillis();
+        String key = KEY_HOUR_PREFIX + (now / HOUR) * HOUR;
+
+        JSONObject hour;
+        try {
+            String saved = prefs.getString(key, null);
+            hour = saved != null ? new JSONObject(saved) : new JSONObject();
+            boolean changed = false;
+            for (Map.Entry<String, Counter> item : counters.entrySet()) {
+                long total = item.getValue().sum();
+                Long last = lastTotals.get(item.getKey());
+                long delta = total - (last != null ? last : 0);
+                if (delta == 0) {
+                    continue;
+                }
+                lastTotals.put(item.getKey(), total);
+                hour.put(item.getKey(), hour.optLong(item.getKey(), 0) + delta);
+                changed = true;
+            }
+            if (!changed) {
+                return;
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "시간대 집계 실패", e);
+            return;
+        }
+
+        prefs.edit().putString(key, hour.toString()).apply();
+
+        // 새 시간대 키가 반영된 뒤에 세어야 MAX_HOURS 를 넘지 않음
+        // (apply 는 메모리에 바로 반영되고, 이어진 apply 는 디스크에 한 번만 쓰임)
+        List<String> hours = savedHours();
+        if (hours.size() > MAX_HOURS) {
+            SharedPreferences.Editor editor = prefs.edit();
+            for (int i = 0; i < hours.size() - MAX_HOURS; i++) {
+                editor.remove(hours.get(i));
+            }
+            editor.apply();
+        }
+        count(DISK + PREF_NAME);
+    }
+
+    /**
+     * JS 에 노출할 통계 - 프로세스 시작 후 누적값과 최근 hours 시간의 시간대별 기록
+     */
+    public synchronized String toJson(int hours) {
+        rollup();
+        JSONObject json = new JSONObject();
+        try {
+            JSONObject totals = new JSONObject();
+            for (Map.Entry<String, Counter> item : counters.entrySet()) {
+                totals.put(item.getKey(), item.getValue().sum());
+            }
+            json.put("since", processStart);
+            json.put("totals", totals);
+
+            JSONArray history = new JSONArray();
+            List<String> keys = savedHours();
+            for (int i = Math.max(0, keys.size() - hours); i < keys.size(); i++) {
+                JSONObject hour = new JSONObject();
+                hour.put("hour", Long.parseLong(keys.get(i).substring(KEY_HOUR_PREFIX.length())));
+                hour.put("counters", new JSONObject(prefs.getString(keys.get(i), "{}")));
+                history.put(hour);
+            }
+            json.put("hours", history);
+        } catch (JSONException e) {
+            Log.e(TAG, "전력 통계 생성 실패", e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * 저장된 시간대 키 (오래된 순)
+     */
+    private List<String> savedHours() {
+        List<String> keys = new ArrayList<>();
+        for (String key : prefs.getAll().keySet()) {
+            if (key.startsWith(KEY_HOUR_PREFIX)) {
+                keys.add(key);
+            }
+        }
+        Collections.sort(keys, (a, b) -> Long.compare(
+            Long.parseLong(a.substring(KEY_HOUR_PREFIX.length())),
+            Long.parseLong(b.substring(KEY_HOUR_PREFIX.length()))));
+        return keys;
+    }
+
+    /**
+     * 다음 시간 경계 직전에 집계 (증가분이 끝나가는 시간대에 들어가도록)
+     * 깨우지 않는 작업이라 하트비트 등 다른 알람에 묻어서 실행된다
+     */
+    private void scheduleRollup() {
+        long end = ((System.currentTimeMillis() + ROLLUP_TOLERANCE) / HOUR + 1) * HOUR;
+        scheduler.scheduleDeferrable(CareScheduler.TASK_POWER_ROLLUP, end - ROLLUP_TOLERANCE, end - 1000, rollupTask);
+    }
+}
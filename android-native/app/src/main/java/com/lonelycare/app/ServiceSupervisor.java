@@ -0,0 +1,234 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 백그라운드 서비스 재시작 감독 - 죽은 서비스가 재시작을 반복하며 배터리를 쓰지 않도록
+ *
+ * 비정상 재시작(onDestroy 없이 프로세스가 죽은 뒤의 시작, START_STICKY 재시작)만 센다.
+ *  - RESTART_WINDOW 안에서 RESTART_BUDGET 번까지는 바로 허용
+ *  - 예산을 넘은 시스템 재시작은 거절하고, 지수 백오프(BACKOFF_BASE x 2^단계, 최대 BACKOFF_MAX) 후
+ *    CareScheduler 알람으로 다시 시작한다
+ *  - 단, 정확한 알람을 걸 수 없으면 (S 이상 SCHEDULE_EXACT_ALARM 거부) 거절하지 않는다 - 비정확 알람에서는
+ *    포그라운드 서비스를 시작할 수 없어 앱을 열 때까지 감시가 멈추기 때문. 이때 재시작 간격은
+ *    시스템의 START_STICKY 재시작 지연(반복될수록 늘어남)에 맡기고 단계만 올린다
+ *  - STABLE_PERIOD 이상 살아 있었으면 단계를 초기화
+ * 사용자/부팅/알람이 직접 시작한 경우는 기록만 하고 항상 허용한다.
+ * 재시작 횟수는 PowerStats 의 service.<이름>_restart / _backoff 에도 남는다.
+ * 재시작 기록은 기기 보호 저장소에 남아 프로세스가 죽어도 이어진다.
+ */
+public class ServiceSupervisor {
+    private static final String TAG = "ServiceSupervisor";
+    private static final String PREF_NAME = "service_supervisor";
+
+    // 감독 대상 서비스 이름
+    public static final String SERVICE_CARE_ENGINE = "care_engine";
+    private static final String[] SERVICES = {SERVICE_CARE_ENGINE};
+
+    private static final String KEY_RUNNING = "_running";
+    private static final String KEY_LAST_START = "_last_start";
+    private static final String KEY_HISTORY = "_history";
+    private static final String KEY_LEVEL = "_level";
+    private static final String KEY_BACKOFF_UNTIL = "_backoff_until";
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long RESTART_WINDOW = 60 * MINUTE;
+    private static final int RESTART_BUDGET = 4;
+    private static final long STABLE_PERIOD = 30 * MINUTE;
+    private static final long BACKOFF_BASE = MINUTE;
+    private static final long BACKOFF_MAX = 60 * MINUTE;
+    // 재시작 알람을 다른 작업과 묶기 위해 늦어져도 되는 폭
+    private static final long RESTART_TOLERANCE = MINUTE;
+
+    private static ServiceSupervisor instance;
+
+    public static synchronized ServiceSupervisor getInstance(Context context) {
+        if (instance == null) {
+            instance = new ServiceSupervisor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    ServiceSupervisor(Context context) {
+        this.context = context;
+        this.prefs = DirectBootStorage.get(context).getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 서비스 첫 시작 시 호출 - false 면 서비스는 바로 멈춰야 한다 (백오프 후 감독자가 다시 시작)
+     *
+     * @param systemRestart 시스템이 START_STICKY 로 다시 시작함 (intent 없음)
+     */
+    public synchronized boolean admit(String name, boolean systemRestart) {
+        long now = System.currentTimeMillis();
+        boolean killed = prefs.getBoolean(name + KEY_RUNNING, false);
+        long lastStart = prefs.getLong(name + KEY_LAST_START, 0);
+        int level = prefs.getInt(name + KEY_LEVEL, 0);
+
+        SharedPreferences.Editor editor = prefs.edit();
+        if (lastStart > 0 && now - lastStart >= STABLE_PERIOD && level > 0) {
+            // 지난번 시작 후 충분히 오래 살아 있었음 - 백오프 단계 초기화
+            level = 0;
+            editor.putInt(name + KEY_LEVEL, 0);
+        }
+
+        if (!killed && !systemRestart) {
+            editor.putBoolean(name + KEY_RUNNING, true).putLong(name + KEY_LAST_START, now).apply();
+            PowerStats.count(PowerStats.DISK + PREF_NAME);
+            return true;
+        }
+
+        List<Long> history = loadHistory(name, now);
+        history.add(now);
+        editor.putString(name + KEY_HISTORY, joinHistory(history));
+        PowerStats.count(PowerStats.SERVICE + name + "_restart");
+
+        if (!systemRestart || history.size() <= RESTART_BUDGET) {
+            Log.d(TAG, name + " 재시작 허용 (" + history.size() + "/" + RESTART_BUDGET + ", "
+                + (systemRestart ? "시스템" : "직접") + ")");
+            editor.putBoolean(name + KEY_RUNNING, true).putLong(name + KEY_LAST_START, now).apply();
+            PowerStats.count(PowerStats.DISK + PREF_NAME);
+            return true;
+        }
+
+        level++;
+        if (!CareScheduler.getInstance(context).canScheduleExact()) {
+            // 백오프 뒤 다시 시작할 방법이 없음 - 감시를 멈추는 것보다 재시작 반복이 낫다
+            editor.putInt(name + KEY_LEVEL, level)
+                .putBoolean(name + KEY_RUNNING, true)
+                .putLong(name + KEY_LAST_START, now)
+                .apply();
+            PowerStats.count(PowerStats.DISK + PREF_NAME);
+            PowerStats.count(PowerStats.SERVICE + name + "_no_exact_alarm");
+            Log.w(TAG, name + " 재시작 반복 감지 (" + history.size() + "회) - 정확한 알람 권한이 없어 거절하지 않고 허용 (단계 "
+                + level + ")");
+            return true;
+        }
+
+        // 재시작 폭주 - 이번 재시작은 거절하고 백오프 후 다시 시작
+        long delay = Math.min(BACKOFF_BASE << Math.min(level - 1, 16), BACKOFF_MAX);
+        long restartAt = now + delay;
+        editor.putInt(name + KEY_LEVEL, level)
+            .putLong(name + KEY_BACKOFF_UNTIL, restartAt)
+            .putBoolean(name + KEY_RUNNING, false)
+            .apply();
+        PowerStats.count(PowerStats.DISK + PREF_NAME);
+        PowerStats.count(PowerStats.SERVICE + name + "_backoff");
+
+        // 포그라운드 서비스 재시작은 정확한 알람에서만 허용되므로 MODE_EXACT (권한은 위에서 확인)
+        CareScheduler.getInstance(context).schedule(
+            CareScheduler.TASK_SERVICE_RESTART, restartAt, restartAt + RESTART_TOLERANCE, CareScheduler.MODE_EXACT);
+        Log.w(TAG, name + " 재시작 반복 감지 (" + history.size() + "회/" + (RESTART_WINDOW / MINUTE)
+            + "분) - " + (delay / 1000) + "초 후 다시 시작 (단계 " + level + ")");
+        return false;
+    }
+
+    /**
+     * 서비스가 정상 종료됨 (onDestroy) - 다음 시작은 비정상 재시작으로 세지 않음
+     */
+    public synchronized void onStopped(String name) {
+        prefs.edit().putBoolean(name + KEY_RUNNING, false).apply();
+        PowerStats.count(PowerStats.DISK + PREF_NAME);
+    }
+
+    /**
+     * 백오프 재시작 알람 수신 (CareScheduler)
+     */
+    void onRestartDue() {
+        long now = System.currentTimeMillis();
+        for (String name : SERVICES) {
+            long until;
+            synchronized (this) {
+                until = prefs.getLong(name + KEY_BACKOFF_UNTIL, 0);
+                if (until == 0 || until > now) {
+                    continue;
+                }
+                prefs.edit().remove(name + KEY_BACKOFF_UNTIL).apply();
+            }
+            Log.d(TAG, name + " 백오프 종료 - 다시 시작");
+            try {
+                start(name);
+            } catch (RuntimeException e) {
+                // 백그라운드 시작 제한 등 - 다음 앱 실행/부팅 때 시작됨
+                Log.e(TAG, name + " 재시작 실패", e);
+            }
+        }
+    }
+
+    /**
+     * JS 에 노출할 재시작 기록
+     */
+    public synchronized String toJson() {
+        long now = System.currentTimeMillis();
+        JSONObject json = new JSONObject();
+        try {
+            for (String name : SERVICES) {
+                JSONObject service = new JSONObject();
+                service.put("running", prefs.getBoolean(name + KEY_RUNNING, false));
+                service.put("lastStart", prefs.getLong(name + KEY_LAST_START, 0));
+                service.put("backoffLevel", prefs.getInt(name + KEY_LEVEL, 0));
+                service.put("backoffUntil", prefs.getLong(name + KEY_BACKOFF_UNTIL, 0));
+                JSONArray restarts = new JSONArray();
+                for (long time : loadHistory(name, now)) {
+                    restarts.put(time);
+                }
+                service.put("restarts", restarts);
+                json.put(name, service);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "재시작 기록 생성 실패", e);
+        }
+        return json.toString();
+    }
+
+    private void start(String name) {
+        if (SERVICE_CARE_ENGINE.equals(name)) {
+            CareEngineService.start(context);
+        }
+    }
+
+    /**
+     * RESTART_WINDOW 안의 비정상 재시작 시각
+     */
+    private List<Long> loadHistory(String name, long now) {
+        List<Long> history = new ArrayList<>();
+        String saved = prefs.getString(name + KEY_HISTORY, "");
+        if (saved.isEmpty()) {
+            return history;
+        }
+        for (String item : saved.split(",")) {
+            try {
+                long time = Long.parseLong(item);
+                if (now - time < RESTART_WINDOW) {
+                    history.add(time);
+                }
+            } catch (NumberFormatException e) {
+                // 손상된 항목은 버림
+            }
+        }
+        return history;
+    }
+
+    private static String joinHistory(List<Long> history) {
+        StringBuilder builder = new StringBuilder();
+        for (long time : history) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(time);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,261 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.messaging.FirebaseMessaging;
+
+/**
+ * 세션 활성 상태 엔진 - 주기적으로 깨우지 않고 실제 이벤트로 판단한다
+ *
+ * 활성 조건: 로그인 상태(AnsimCare/currentUser)이면서 아래 중 하나
+ *  - 앱이 포그라운드
+ *  - 최근 SESSION_TTL 안에 포그라운드 전환/브리지 호출 같은 실제 이벤트
+ *  - 유효한 FCM 토큰 (백엔드가 푸시로 언제든 기기를 깨울 수 있음)
+ *
+ * CPU 를 깨우는 경우는 FCM 토큰이 TOKEN_REFRESH_AGE 보다 오래되어 다시 받아야 할 때뿐이며,
+ * 그때도 REFRESH_WAKE_TIMEOUT 으로 제한된 wake lock 만 잡는다.
+ */
+public class SessionEngine {
+    private static final String TAG = "SessionEngine";
+
+    private static final String PREF_NAME = "AnsimCare";
+    private static final String KEY_CURRENT_USER = "currentUser";
+    private static final String KEY_SESSION_STATUS = "sessionStatus";
+    private static final String KEY_LAST_UPDATE = "lastSessionUpdate";
+
+    // FCM 토큰은 MainActivity/MyFirebaseMessagingService 가 이 위치에 저장한다
+    private static final String FCM_PREF_NAME = "lonely_care_prefs";
+    private static final String KEY_FCM_TOKEN = "fcm_token";
+    private static final String KEY_FCM_TOKEN_TIME = "fcm_token_time";
+
+    public static final String ACTION_SESSION_REFRESH = "com.lonelycare.SESSION_REFRESH";
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    // 마지막 이벤트 후 이 시간 동안은 토큰 없이도 활성 (기존 isSessionActive 기준과 동일)
+    private static final long SESSION_TTL = 10 * MINUTE;
+    private static final long TOKEN_REFRESH_AGE = 7 * DAY;
+    private static final long TOKEN_MAX_AGE = 30 * DAY;
+    private static final long TOKEN_RETRY_DELAY = 6 * 60 * MINUTE;
+    private static final long MIN_ALARM_DELAY = MINUTE;
+    private static final long REFRESH_WAKE_TIMEOUT = 30 * 1000;
+
+    // 토큰 갱신은 급하지 않으므로 다른 작업 알람에 묶일 수 있도록 넓게 허용
+    private static final long ALARM_TOLERANCE = 60 * MINUTE;
+
+    private static SessionEngine instance;
+
+    public static synchronized SessionEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final SharedPreferences fcmPrefs;
+    private final CareScheduler scheduler;
+    private final PowerManager.WakeLock refreshWakeLock;
+
+    private boolean foreground = false;
+    private boolean refreshing = false;
+    private long lastRefreshAttempt = 0;
+    private long wakeAcquiredAt = 0;
+
+    private SessionEngine(Context context) {
+        this.context = context;
+        this.prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.fcmPrefs = context.getSharedPreferences(FCM_PREF_NAME, Context.MODE_PRIVATE);
+        this.scheduler = CareScheduler.getInstance(context);
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.refreshWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "LonelyCare:SessionRefresh");
+        this.refreshWakeLock.setReferenceCounted(false);
+    }
+
+    /**
+     * 세션 엔진 시작 (로그인/부팅/keepSessionAlive) - 다음 토큰 갱신 시각에만 알람
+     */
+    public synchronized void start() {
+        arm();
+    }
+
+    public synchronized void onForeground() {
+        foreground = true;
+        touch("active");
+        // 포그라운드에서는 이미 깨어 있으므로 갱신이 필요하면 바로 (wake lock 불필요)
+        if (isLoggedIn() && tokenRefreshDue(System.currentTimeMillis())) {
+            refreshToken(false);
+        }
+        arm();
+    }
+
+    public synchronized void onBackground() {
+        foreground = false;
+        touch("background");
+    }
+
+    /**
+     * JS 브리지 호출 (세션 상태 보고 등)
+     */
+    public synchronized void onBridgeCall(String status) {
+        touch(status);
+    }
+
+    /**
+     * FCM 토큰이 새로 저장됨 - 다음 갱신 시각 다시 계산
+     */
+    public synchronized void onFcmTokenUpdated() {
+        arm();
+    }
+
+    /**
+     * 로그아웃 - 알람 해제
+     */
+    public synchronized void stop() {
+        scheduler.cancel(CareScheduler.TASK_SESSION);
+        finishRefresh();
+        Log.d(TAG, "세션 엔진 중지");
+    }
+
+    public synchronized boolean isActive() {
+        if (!isLoggedIn()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        return foreground
+            || now - prefs.getLong(KEY_LAST_UPDATE, 0) < SESSION_TTL
+            || tokenValid(now);
+    }
+
+    /**
+     * 토큰 갱신 알람 수신 (CareScheduler)
+     */
+    synchronized void onAlarm() {
+        if (!isLoggedIn()) {
+            Log.d(TAG, "로그인 안 됨 - 세션 알람 무시");
+            return;
+        }
+        if (tokenRefreshDue(System.currentTimeMillis())) {
+            refreshToken(true);
+        } else {
+            arm();
+        }
+    }
+
+    private void touch(String status) {
+        prefs.edit()
+            .putString(KEY_SESSION_STATUS, status)
+            .putLong(KEY_LAST_UPDATE, System.currentTimeMillis())
+            .apply();
+        PowerStats.count(PowerStats.DISK + PREF_NAME);
+    }
+
+    private boolean isLoggedIn() {
+        String currentUser = prefs.getString(KEY_CURRENT_USER, null);
+        return currentUser != null && !currentUser.isEmpty();
+    }
+
+    private boolean tokenValid(long now) {
+        String token = fcmPrefs.getString(KEY_FCM_TOKEN, null);
+        return token != null && now - fcmPrefs.getLong(KEY_FCM_TOKEN_TIME, 0) < TOKEN_MAX_AGE;
+    }
+
+    private boolean tokenRefreshDue(long now) {
+        return now >= nextRefreshTime(now);
+    }
+
+    /**
+     * 토큰 재발급 예정 시각 - 실패 후에는 TOKEN_RETRY_DELAY 동안 다시 시도하지 않음
+     */
+    private long nextRefreshTime(long now) {
+        long due = fcmPrefs.getString(KEY_FCM_TOKEN, null) != null
+            ? fcmPrefs.getLong(KEY_FCM_TOKEN_TIME, 0) + TOKEN_REFRESH_AGE
+            : now;
+        if (lastRefreshAttempt > 0) {
+            due = Math.max(due, lastRefreshAttempt + TOKEN_RETRY_DELAY);
+        }
+        return due;
+    }
+
+    /**
+     * FCM 토큰 재발급 + WebView 세션 갱신 알림
+     *
+     * @param wake 백그라운드 알람에서 호출된 경우 제한 시간 wake lock 으로 응답을 기다림
+     */
+    private void refreshToken(boolean wake) {
+        if (refreshing) {
+            return;
+        }
+        refreshing = true;
+        lastRefreshAttempt = System.currentTimeMillis();
+        if (wake) {
+            refreshWakeLock.acquire(REFRESH_WAKE_TIMEOUT);
+            wakeAcquiredAt = SystemClock.elapsedRealtime();
+            PowerStats.count(PowerStats.WAKELOCK + "session_refresh");
+        }
+        Log.d(TAG, "FCM 토큰 갱신 시작");
+
+        try {
+            FirebaseMessaging.getInstance().getToken().addOnCompleteListener(task -> {
+                if (task.isSuccessful() && task.getResult() != null) {
+                    fcmPrefs.edit()
+                        .putString(KEY_FCM_TOKEN, task.getResult())
+                        .putLong(KEY_FCM_TOKEN_TIME, System.currentTimeMillis())
+                        .apply();
+                    PowerStats.count(PowerStats.DISK + FCM_PREF_NAME);
+                    Log.d(TAG, "FCM 토큰 갱신 완료");
+                } else {
+                    Log.w(TAG, "FCM 토큰 갱신 실패", task.getException());
+                }
+                synchronized (SessionEngine.this) {
+                    finishRefresh();
+                    arm();
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "FCM 토큰 요청 실패", e);
+            finishRefresh();
+            arm();
+        }
+
+        // 살아있는 WebView 가 있으면 서버 세션도 함께 갱신하도록 알림
+        Intent refreshIntent = new Intent(ACTION_SESSION_REFRESH);
+        refreshIntent.setPackage(context.getPackageName());
+        context.sendBroadcast(refreshIntent);
+        PowerStats.count(PowerStats.BROADCAST + "session_refresh");
+    }
+
+    private void finishRefresh() {
+        refreshing = false;
+        if (refreshWakeLock.isHeld()) {
+            refreshWakeLock.release();
+        }
+        if (wakeAcquiredAt > 0) {
+            // 제한 시간이 지나 시스템이 먼저 해제했으면 제한 시간만큼만 보유한 것
+            long held = Math.min(SystemClock.elapsedRealtime() - wakeAcquiredAt, REFRESH_WAKE_TIMEOUT);
+            PowerStats.add(PowerStats.WAKELOCK + "session_refresh_ms", held);
+            wakeAcquiredAt = 0;
+        }
+    }
+
+    /**
+     * 다음 토큰 갱신 시각을 통합 스케줄러에 등록 (Doze 중에도 실행되도록)
+     */
+    private void arm() {
+        if (!isLoggedIn()) {
+            scheduler.cancel(CareScheduler.TASK_SESSION);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long due = Math.max(nextRefreshTime(now), now + MIN_ALARM_DELAY);
+        scheduler.schedule(CareScheduler.TASK_SESSION, due, due + ALARM_TOLERANCE, CareScheduler.MODE_IDLE);
+        Log.d(TAG, "다음 세션 갱신 알람: " + ((due - now) / MINUTE) + "분 후");
+    }
+}
@@ -0,0 +1,151 @@
+package com.lonelycare.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 계층형 타이밍 휠 (CareScheduler 내부 자료구조)
+ *
+ * 시간은 tick 단위 정수. 각 단계는 SLOTS 칸이며 아래 단계 한 바퀴가 위 단계 한 칸이다.
+ *  - 0단계: 1 tick x 64, 1단계: 64 tick x 64, 2단계: 4096 tick x 64, 그 이후는 overflow
+ * 커서가 위 단계 칸 경계를 지날 때 그 칸의 노드를 아래 단계로 내린다(cascade).
+ * 추가/삭제는 O(1), advance 는 지나간 tick 수에 비례하지만 비어 있는 구간은 건너뛴다.
+ *
+ * 스레드 안전하지 않음 - 호출 측에서 동기화할 것
+ */
+public class TimingWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+
+    public static class Node {
+        public final String id;
+        long tick;
+        List<Node> bucket;
+
+        public Node(String id) {
+            this.id = id;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final List<Node>[][] wheels = new List[LEVELS][SLOTS];
+    private final List<Node> overflow = new ArrayList<>();
+    // 이미 지난 tick 으로 추가된 노드 (다음 advance 에서 바로 반환)
+    private final List<Node> overdue = new ArrayList<>();
+
+    private long cursor;
+    private int size = 0;
+
+    public TimingWheel(long startTick) {
+        this.cursor = startTick;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheels[level][slot] = new ArrayList<>(2);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(Node node, long tick) {
+        if (node.bucket != null) {
+            remove(node);
+        }
+        node.tick = tick;
+        if (tick <= cursor) {
+            // 현재 칸은 이미 지나갔으므로 다음 advance 에서 바로 꺼내도록
+            node.bucket = overdue;
+            overdue.add(node);
+        } else {
+            place(node);
+        }
+        size++;
+    }
+
+    public void remove(Node node) {
+        if (node.bucket == null) {
+            return;
+        }
+        node.bucket.remove(node);
+        node.bucket = null;
+        size--;
+    }
+
+    /**
+     * 커서를 nowTick 까지 옮기며 tick 이 지난 노드를 모두 꺼낸다
+     */
+    public List<Node> advance(long nowTick) {
+        List<Node> expired = new ArrayList<>();
+        drain(overdue, expired);
+
+        while (cursor < nowTick) {
+            if (size == expired.size()) {
+                // 남은 노드가 없으면 빈 구간을 한 번에 건너뜀
+                cursor = nowTick;
+                break;
+            }
+            cursor++;
+            if ((cursor & MASK) == 0) {
+                cascade();
+            }
+            drain(wheels[0][(int) (cursor & MASK)], expired);
+        }
+
+        size -= expired.size();
+        for (Node node : expired) {
+            node.bucket = null;
+        }
+        return expired;
+    }
+
+    /**
+     * cascade 중에는 커서 칸이 아직 비워지기 전이므로 tick == cursor 도 0단계 칸에 둔다
+     */
+    private void place(Node node) {
+        long delta = node.tick - cursor;
+        List<Node> bucket;
+        if (delta < 0) {
+            bucket = overdue;
+        } else if (delta < SLOTS) {
+            bucket = wheels[0][(int) (node.tick & MASK)];
+        } else if (delta < (1L << (2 * BITS))) {
+            bucket = wheels[1][(int) ((node.tick >> BITS) & MASK)];
+        } else if (delta < (1L << (3 * BITS))) {
+            bucket = wheels[2][(int) ((node.tick >> (2 * BITS)) & MASK)];
+        } else {
+            bucket = overflow;
+        }
+        node.bucket = bucket;
+        bucket.add(node);
+    }
+
+    /**
+     * 위 단계 칸 경계를 지날 때 해당 칸 노드를 다시 배치
+     */
+    private void cascade() {
+        List<Node> moved = new ArrayList<>();
+        for (int level = 1; level < LEVELS; level++) {
+            drain(wheels[level][(int) ((cursor >> (level * BITS)) & MASK)], moved);
+            if (((cursor >> (level * BITS)) & MASK) != 0) {
+                break;
+            }
+        }
+        if ((cursor & ((1L << (LEVELS * BITS)) - 1)) == 0) {
+            drain(overflow, moved);
+        }
+        for (Node node : moved) {
+            place(node);
+        }
+    }
+
+    private static void drain(List<Node> from, List<Node> to) {
+        if (!from.isEmpty()) {
+            to.addAll(from);
+            from.clear();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.lonelycare.app;
+
+import java.io.IOException;
+
+/**
+ * 업로드 전송 계층 - 실제 HTTP 구현과 테스트용 대역 서버 구현을 바꿔 끼울 수 있게 분리
+ */
+public interface UploadTransport {
+    /**
+     * 요청 본문 전송
+     *
+     * @param body 인코딩된 본문
+     * @param gzip 본문이 gzip 압축되어 있으면 true
+     * @return HTTP 상태 코드
+     */
+    int post(byte[] body, boolean gzip) throws IOException;
+}
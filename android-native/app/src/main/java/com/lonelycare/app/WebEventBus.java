@@ -0,0 +1,311 @@
+package com.lonelycare.app;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+import android.webkit.WebView;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 네이티브 → WebView 이벤트 버스
+ *
+ * 네이티브 곳곳에서 evaluateJavascript 를 직접 부르면 이벤트마다 스크립트를 새로 컴파일해
+ * 센서 이벤트가 몰릴 때 화면이 끊긴다. 이벤트는 여기 쌓아 두고 프레임(Choreographer)마다
+ * 한 번에 전달한다.
+ *  - 이벤트는 데이터 ({type, data}) 만 - NativeChannel 의 메시지 포트로 JSON 만 보내고,
+ *    네이티브 값을 스크립트 문자열에 끼워 넣지 않음
+ *  - send 는 모두 전달, sendLatest 는 같은 종류의 이전 이벤트를 대체 (움직임, 토큰 등)
+ *  - 페이지 로드가 끝나기 전에는 쌓아 두었다가 onPageFinished 뒤에 전달 (앱 페이지에만)
+ *  - 실행 중인 스크립트가 끝나기 전에는 다음 묶음을 보내지 않고, 큐가 MAX_PENDING 을 넘으면
+ *    가장 오래된 이벤트부터 버림
+ * 화면이 꺼져 프레임이 오지 않아도 IDLE_FLUSH_DELAY 안에는 전달된다.
+ * 연결된 WebView 가 없으면 (앱이 떠 있지 않음) 이벤트는 버린다.
+ */
+public class WebEventBus {
+    private static final String TAG = "WebEventBus";
+
+    private static final int MAX_PENDING = 200;
+    // 프레임이 오지 않을 때 (화면 꺼짐, 백그라운드) 대신 전달하기까지 기다리는 시간
+    private static final long IDLE_FLUSH_DELAY = 250;
+    // 실행 결과 콜백이 오지 않으면 (페이지 이동 등) 이 시간 뒤 다음 묶음을 보냄
+    private static final long IN_FLIGHT_TIMEOUT = 1000;
+
+    private static WebEventBus instance;
+
+    public static synchronized WebEventBus getInstance() {
+        if (instance == null) {
+            instance = new WebEventBus();
+        }
+        return instance;
+    }
+
+    /**
+     * 전달 대기 중인 이벤트 한 건
+     */
+    private static final class Event {
+        final String type;
+        final String data;
+        // EventLog 순번 (기록하지 않는 이벤트는 0)
+        final long seq;
+
+        Event(String type, String data, long seq) {
+            this.type = type;
+            this.data = data;
+            this.seq = seq;
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final NativeChannel channel = new NativeChannel();
+
+    // 키 → 이벤트 (sendLatest 는 type 그대로, send 는 type#순번 으로 중복되지 않게)
+    private final LinkedHashMap<String, Event> pending = new LinkedHashMap<>();
+    private long sequence = 0;
+
+    private WebView webView;
+    private boolean pageReady = false;
+    private boolean flushScheduled = false;
+    private long inFlightSince = 0;
+    // 페이지 이동마다 증가 - 이전 페이지의 채널 연결 완료 콜백은 무시
+    private int pageGeneration = 0;
+
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> flush();
+    private final Runnable idleFlush = this::flush;
+    private final Runnable scheduleTask = this::scheduleOnMain;
+
+    private WebEventBus() {
+    }
+
+    /**
+     * JS → 네이티브 메시지 리스너 등록용
+     */
+    public NativeChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * WebView 연결 (MainActivity.onCreate) - 페이지 로드가 끝날 때까지는 쌓아 둠
+     */
+    public synchronized void attach(WebView webView) {
+        this.webView = webView;
+        this.pageReady = false;
+        this.inFlightSince = 0;
+        this.flushScheduled = false;
+        mainHandler.removeCallbacks(idleFlush);
+    }
+
+    /**
+     * WebView 연결 해제 (MainActivity.onDestroy) - 남은 이벤트는 버림
+     */
+    public synchronized void detach(WebView webView) {
+        if (this.webView != webView) {
+            return;
+        }
+        this.webView = null;
+        this.pageReady = false;
+        pageGeneration++;
+        channel.close();
+        if (!pending.isEmpty()) {
+            PowerStats.add(PowerStats.WEBVIEW + "dropped", pending.size());
+            pending.clear();
+        }
+    }
+
+    /**
+     * 페이지 이동 시작 - 새 페이지가 준비될 때까지 전달 보류
+     */
+    public synchronized void onPageStarted() {
+        pageReady = false;
+        pageGeneration++;
+        channel.close();
+        inFlightSince = 0;
+        flushScheduled = false;
+        mainHandler.removeCallbacks(idleFlush);
+    }
+
+    /**
+     * 페이지 로드 완료 (메인 스레드) - 채널을 연결한 뒤 쌓아 둔 이벤트 전달
+     * 앱 페이지가 아니면 (카카오 로그인 등) 심을 넣지 않고 앱 페이지로 돌아올 때까지 쌓아 둠
+     */
+    public void onPageFinished() {
+        WebView target;
+        int generation;
+        synchronized (this) {
+            target = webView;
+            generation = pageGeneration;
+        }
+        if (target == null) {
+            return;
+        }
+        if (!NativeChannel.isAppPage(target.getUrl())) {
+            Log.d(TAG, "앱 페이지가 아님 - 이벤트 전달 보류");
+            return;
+        }
+        channel.open(target, () -> {
+            synchronized (this) {
+                if (generation != pageGeneration) {
+                    return;
+                }
+                pageReady = true;
+            }
+            requestFlush();
+        });
+    }
+
+    /**
+     * 모두 전달해야 하는 데이터 이벤트 (data 는 JSON 값, 없으면 null)
+     */
+    public void send(String type, String data) {
+        send(type, data, 0);
+    }
+
+    /**
+     * EventLog 에 기록된 이벤트 - 순번을 함께 보내 JS 가 따라잡기 기준으로 삼음
+     */
+    public void send(String type, String data, long seq) {
+        synchronized (this) {
+            if (webView == null) {
+                PowerStats.count(PowerStats.WEBVIEW + "dropped");
+                return;
+            }
+            enqueue(type + "#" + (sequence++), new Event(type, data != null ? data : "null", seq));
+        }
+        requestFlush();
+    }
+
+    /**
+     * 최신 값만 의미 있는 데이터 이벤트 - 아직 전달되지 않은 같은 종류의 이벤트를 대체
+     */
+    public void sendLatest(String type, String data) {
+        sendLatest(type, data, 0);
+    }
+
+    public void sendLatest(String type, String data, long seq) {
+        synchronized (this) {
+            if (webView == null) {
+                PowerStats.count(PowerStats.WEBVIEW + "dropped");
+                return;
+            }
+            if (pending.remove(type) != null) {
+                PowerStats.count(PowerStats.WEBVIEW + "merged");
+            }
+            enqueue(type, new Event(type, data != null ? data : "null", seq));
+        }
+        requestFlush();
+    }
+
+    private void enqueue(String key, Event event) {
+        pending.put(key, event);
+        PowerStats.count(PowerStats.WEBVIEW + "event");
+        // 백프레셔: 큐가 넘치면 가장 오래된 것부터 버림
+        Iterator<Map.Entry<String, Event>> iterator = pending.entrySet().iterator();
+        while (pending.size() > MAX_PENDING && iterator.hasNext()) {
+            Event dropped = iterator.next().getValue();
+            iterator.remove();
+            PowerStats.count(PowerStats.WEBVIEW + "dropped");
+            Log.w(TAG, "이벤트 큐 초과 - 버림: " + dropped.type);
+        }
+    }
+
+    private void requestFlush() {
+        synchronized (this) {
+            if (flushScheduled || webView == null || !pageReady || pending.isEmpty()) {
+                return;
+            }
+            flushScheduled = true;
+            if (inFlightSince != 0) {
+                // 이전 묶음 실행 중 - 끝나면 onFlushed 가 바로, 콜백이 없으면 시간 초과 후 전달
+                long wait = IN_FLIGHT_TIMEOUT - (SystemClock.uptimeMillis() - inFlightSince);
+                if (wait > 0) {
+                    mainHandler.postDelayed(idleFlush, wait);
+                    return;
+                }
+            }
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            scheduleOnMain();
+        } else {
+            mainHandler.post(scheduleTask);
+        }
+    }
+
+    /**
+     * 다음 프레임에 전달 (프레임이 오지 않으면 IDLE_FLUSH_DELAY 뒤에)
+     */
+    private void scheduleOnMain() {
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+        mainHandler.postDelayed(idleFlush, IDLE_FLUSH_DELAY);
+    }
+
+    private boolean canFlush() {
+        return webView != null && pageReady && !pending.isEmpty()
+            && (inFlightSince == 0 || SystemClock.uptimeMillis() - inFlightSince > IN_FLIGHT_TIMEOUT);
+    }
+
+    /**
+     * 쌓인 이벤트 전달 (메인 스레드) - 포트 메시지 하나, 포트가 없으면 evaluateJavascript 한 번
+     */
+    private void flush() {
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+        mainHandler.removeCallbacks(idleFlush);
+
+        WebView target;
+        List<Event> events;
+        synchronized (this) {
+            flushScheduled = false;
+            if (!canFlush()) {
+                return;
+            }
+            target = webView;
+            events = new ArrayList<>(pending.values());
+            pending.clear();
+            inFlightSince = SystemClock.uptimeMillis();
+        }
+
+        StringBuilder batch = new StringBuilder();
+        for (Event event : events) {
+            batch.append(batch.length() == 0 ? "[" : ",")
+                .append("{\"type\":").append(JSONObject.quote(event.type))
+                .append(",\"data\":").append(event.data);
+            if (event.seq > 0) {
+                batch.append(",\"seq\":").append(event.seq);
+            }
+            batch.append('}');
+        }
+        batch.append(']');
+        if (channel.send(batch.toString())) {
+            PowerStats.count(PowerStats.WEBVIEW + "port_message");
+            onFlushed();
+            return;
+        }
+        try {
+            // 포트 미지원 WebView - 같은 JSON 을 심에 넘기는 호출로 대체
+            target.evaluateJavascript(NativeChannel.dispatchScript(batch.toString()), result -> onFlushed());
+            PowerStats.count(PowerStats.WEBVIEW + "flush");
+        } catch (RuntimeException e) {
+            Log.e(TAG, "WebView 이벤트 전달 실패 (" + events.size() + "건)", e);
+            onFlushed();
+        }
+    }
+
+    private void onFlushed() {
+        synchronized (this) {
+            inFlightSince = 0;
+            if (flushScheduled) {
+                // 실행 완료를 기다리던 묶음은 시간 초과를 기다리지 않고 바로
+                mainHandler.removeCallbacks(idleFlush);
+                flushScheduled = false;
+            }
+        }
+        requestFlush();
+    }
+}
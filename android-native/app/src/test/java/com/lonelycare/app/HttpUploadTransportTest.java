@@ -0,0 +1,144 @@
+package com.lonelycare.app;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * HttpUploadTransport 를 로컬 HTTP 서버(com.sun.net.httpserver)에 붙여 요청 형식과 응답 처리를 검증
+ */
+public class HttpUploadTransportTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 서버가 받은 요청 하나
+     */
+    private static final class Request {
+        final String method;
+        final String path;
+        final String contentType;
+        final String contentEncoding;
+        final String authorization;
+        final byte[] body;
+
+        Request(String method, String path, String contentType, String contentEncoding,
+                String authorization, byte[] body) {
+            this.method = method;
+            this.path = path;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.authorization = authorization;
+            this.body = body;
+        }
+    }
+
+    private HttpServer server;
+    private String endpoint;
+    private final List<Request> requests = Collections.synchronizedList(new ArrayList<Request>());
+    private volatile int responseStatus = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/liveness", exchange -> {
+            byte[] body = readAll(exchange.getRequestBody());
+            requests.add(new Request(
+                exchange.getRequestMethod(),
+                exchange.getRequestURI().getPath(),
+                exchange.getRequestHeaders().getFirst("Content-Type"),
+                exchange.getRequestHeaders().getFirst("Content-Encoding"),
+                exchange.getRequestHeaders().getFirst("Authorization"),
+                body));
+            byte[] response = "{\"ok\":true}".getBytes(UTF_8);
+            exchange.sendResponseHeaders(responseStatus, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/liveness";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void postsBodyWithHeaders() throws IOException {
+        HttpUploadTransport transport = new HttpUploadTransport(endpoint, "token-1");
+        byte[] body = "{\"u\":\"user-1\",\"t\":1,\"e\":[[\"m\",5000]]}".getBytes(UTF_8);
+
+        assertEquals(200, transport.post(body, false));
+
+        assertEquals(1, requests.size());
+        Request request = requests.get(0);
+        assertEquals("POST", request.method);
+        assertEquals("/liveness", request.path);
+        assertEquals("application/json; charset=utf-8", request.contentType);
+        assertNull(request.contentEncoding);
+        assertEquals("Bearer token-1", request.authorization);
+        assertArrayEquals(body, request.body);
+    }
+
+    @Test
+    public void marksGzipBodyAndOmitsEmptyToken() throws IOException {
+        HttpUploadTransport transport = new HttpUploadTransport(endpoint, "");
+        byte[] body = new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0};
+
+        assertEquals(200, transport.post(body, true));
+
+        Request request = requests.get(0);
+        assertEquals("gzip", request.contentEncoding);
+        assertNull(request.authorization);
+        assertArrayEquals(body, request.body);
+    }
+
+    @Test
+    public void returnsErrorStatusWithoutThrowing() throws IOException {
+        HttpUploadTransport transport = new HttpUploadTransport(endpoint, "token-1");
+        responseStatus = 503;
+
+        assertEquals(503, transport.post("{}".getBytes(UTF_8), false));
+
+        // 오류 응답 본문도 소비했으므로 다음 요청도 정상
+        responseStatus = 200;
+        assertEquals(200, transport.post("{}".getBytes(UTF_8), false));
+        assertEquals(2, requests.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void throwsWhenServerIsDown() throws IOException {
+        HttpUploadTransport transport = new HttpUploadTransport(endpoint, "token-1");
+        server.stop(0);
+
+        transport.post("{}".getBytes(UTF_8), false);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
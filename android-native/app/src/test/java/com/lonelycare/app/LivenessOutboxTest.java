@@ -0,0 +1,74 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 전송 확인이 한 번도 오지 않아도 (업로드 미설정, 오프라인) 저널 크기가 제한되는지 검증
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class LivenessOutboxTest {
+    private static final long MAX_JOURNAL_BYTES = 256 * 1024;
+
+    private File dir;
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        dir = new File(context.getCacheDir(), "outbox-test-" + System.nanoTime());
+        assertTrue(dir.mkdirs());
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @Test
+    public void journalStaysBoundedWithoutAcks() {
+        LivenessOutbox outbox = new LivenessOutbox(dir, executor);
+        for (int i = 0; i < 20000; i++) {
+            outbox.append(LivenessUploader.TYPE_HEARTBEAT, 1000L + i, "pair-" + i + "-0123456789abcdef");
+            if (i % 100 == 0) {
+                outbox.commit();
+            }
+        }
+        outbox.commit();
+
+        assertTrue(new File(dir, "outbox.log").length() <= MAX_JOURNAL_BYTES);
+        assertTrue(outbox.size() <= 5000);
+
+        // 다시 읽어도 같은 (최근) 이벤트만 남음
+        LivenessOutbox restarted = new LivenessOutbox(dir, executor);
+        assertEquals(outbox.size(), restarted.size());
+        assertEquals(1000L + 19999, restarted.peek(Integer.MAX_VALUE).get(restarted.size() - 1).time);
+    }
+
+    @Test
+    public void coalescedMotionDoesNotGrowJournal() {
+        LivenessOutbox outbox = new LivenessOutbox(dir, executor);
+        // 같은 병합 구간 안의 움직임은 하나만 남지만 저널에는 매번 덧붙음
+        for (int i = 0; i < 20000; i++) {
+            outbox.append(LivenessUploader.TYPE_MOTION, 1000L + i, null);
+            if (i % 50 == 0) {
+                outbox.commit();
+            }
+        }
+        outbox.commit();
+
+        assertEquals(1, outbox.size());
+        assertTrue(new File(dir, "outbox.log").length() <= MAX_JOURNAL_BYTES);
+    }
+}
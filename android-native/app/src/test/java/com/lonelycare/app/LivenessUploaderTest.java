@@ -0,0 +1,215 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * LivenessUploader 를 로컬 대역 전송(FakeTransport)에 붙여 본문 형식, gzip, 확인/재시도를 검증
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class LivenessUploaderTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 받은 요청을 기록하고 미리 정한 응답(상태 코드, 음수면 IOException)을 순서대로 돌려주는 대역 서버
+     */
+    private static final class FakeTransport implements UploadTransport {
+        final List<byte[]> bodies = new ArrayList<>();
+        final List<Boolean> gzipped = new ArrayList<>();
+        final LinkedList<Integer> responses = new LinkedList<>();
+
+        @Override
+        public int post(byte[] body, boolean gzip) throws IOException {
+            bodies.add(body);
+            gzipped.add(gzip);
+            int status = responses.isEmpty() ? 200 : responses.removeFirst();
+            if (status < 0) {
+                throw new IOException("연결 실패 (대역)");
+            }
+            return status;
+        }
+
+        JSONObject request(int index) throws Exception {
+            byte[] body = bodies.get(index);
+            if (gzipped.get(index)) {
+                body = gunzip(body);
+            }
+            return new JSONObject(new String(body, UTF_8));
+        }
+    }
+
+    private Context context;
+    private FakeTransport transport;
+    private LivenessUploader uploader;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        transport = new FakeTransport();
+        uploader = new LivenessUploader(context);
+        uploader.configure("http://127.0.0.1:1/liveness", "token", "user-1");
+        uploader.setTransport(transport);
+    }
+
+    @Test
+    public void encodesEventsAsShortKeyJson() throws Exception {
+        uploader.enqueueHeartbeat("pair-1", 1000L);
+        uploader.enqueueSession("active", 2000L);
+        uploader.enqueueInactivity("danger", 3000L);
+
+        assertTrue(uploader.flushNow());
+
+        assertEquals(1, transport.bodies.size());
+        assertFalse(transport.gzipped.get(0));
+        JSONObject request = transport.request(0);
+        assertEquals("user-1", request.getString("u"));
+        assertTrue(request.getLong("t") > 0);
+
+        JSONArray events = request.getJSONArray("e");
+        assertEquals(3, events.length());
+        assertEvent(events.getJSONArray(0), LivenessUploader.TYPE_HEARTBEAT, 1000L, "pair-1");
+        assertEvent(events.getJSONArray(1), LivenessUploader.TYPE_SESSION, 2000L, "active");
+        assertEvent(events.getJSONArray(2), LivenessUploader.TYPE_INACTIVITY, 3000L, "danger");
+        assertEquals(0, uploader.getPendingCount());
+    }
+
+    @Test
+    public void omitsKeyForMotion() throws Exception {
+        uploader.enqueueMotion(5000L);
+
+        assertTrue(uploader.flushNow());
+
+        JSONArray event = transport.request(0).getJSONArray("e").getJSONArray(0);
+        assertEquals(2, event.length());
+        assertEquals(LivenessUploader.TYPE_MOTION, event.getString(0));
+        assertEquals(5000L, event.getLong(1));
+    }
+
+    @Test
+    public void gzipsLargeBodies() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            uploader.enqueueHeartbeat("pair-" + i, 1000L + i);
+        }
+
+        assertTrue(uploader.flushNow());
+
+        assertEquals(1, transport.bodies.size());
+        assertTrue(transport.gzipped.get(0));
+        JSONArray events = transport.request(0).getJSONArray("e");
+        assertEquals(100, events.length());
+        assertEvent(events.getJSONArray(99), LivenessUploader.TYPE_HEARTBEAT, 1099L, "pair-99");
+    }
+
+    @Test
+    public void keepsEventsAfterServerErrorAndRetries() throws Exception {
+        transport.responses.add(503);
+        uploader.enqueueHeartbeat("pair-1", 1000L);
+
+        assertFalse(uploader.flushNow());
+        assertEquals(1, uploader.getPendingCount());
+
+        assertTrue(uploader.flushNow());
+        assertEquals(2, transport.bodies.size());
+        assertEquals(transport.request(0).getJSONArray("e").toString(),
+            transport.request(1).getJSONArray("e").toString());
+        assertEquals(0, uploader.getPendingCount());
+    }
+
+    @Test
+    public void keepsEventsAfterNetworkFailure() throws Exception {
+        transport.responses.add(-1);
+        uploader.enqueueHeartbeat("pair-1", 1000L);
+
+        assertFalse(uploader.flushNow());
+        assertEquals(1, uploader.getPendingCount());
+
+        assertTrue(uploader.flushNow());
+        assertEquals(0, uploader.getPendingCount());
+    }
+
+    @Test
+    public void acknowledgedBatchesAreNotResentAfterRestart() throws Exception {
+        // 첫 묶음(200개)만 확인되고 두 번째 묶음은 실패
+        transport.responses.add(200);
+        transport.responses.add(500);
+        for (int i = 0; i < 250; i++) {
+            uploader.enqueueHeartbeat("pair-" + i, 1000L + i);
+        }
+
+        assertFalse(uploader.flushNow());
+        assertEquals(50, uploader.getPendingCount());
+
+        // 프로세스 재시작 - 저널에서 확인되지 않은 이벤트만 복구
+        // (설정은 저장돼 있으므로 configure 없이 전송 계층만 대역으로)
+        LivenessUploader restarted = new LivenessUploader(context);
+        restarted.setTransport(transport);
+        assertEquals(50, restarted.getPendingCount());
+
+        assertTrue(restarted.flushNow());
+        JSONArray resent = transport.request(transport.bodies.size() - 1).getJSONArray("e");
+        assertEquals(50, resent.length());
+        assertEvent(resent.getJSONArray(0), LivenessUploader.TYPE_HEARTBEAT, 1200L, "pair-200");
+    }
+
+    @Test
+    public void ignoresEventsUntilConfigured() throws Exception {
+        // 엔드포인트가 없으면 (페이지가 configureUploader 를 부르기 전) 저널에 쌓지 않음
+        uploader.configure("", "", "");
+        uploader.enqueueHeartbeat("pair-1", 1000L);
+        uploader.enqueueMotion(2000L);
+        uploader.enqueueSession("active", 3000L);
+        uploader.enqueueAlertAck("alert-1", 4000L);
+        uploader.enqueueInactivity("danger", 5000L);
+
+        assertEquals(0, uploader.getPendingCount());
+
+        // 설정 뒤의 이벤트만 기록
+        uploader.setTransport(transport);
+        uploader.enqueueHeartbeat("pair-2", 6000L);
+        assertEquals(1, uploader.getPendingCount());
+        assertTrue(uploader.flushNow());
+        assertEquals(1, transport.bodies.size());
+    }
+
+    private static void assertEvent(JSONArray event, String type, long time, String key) throws Exception {
+        assertEquals(type, event.getString(0));
+        assertEquals(time, event.getLong(1));
+        assertEquals(key, event.getString(2));
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            byte[] buffer = new byte[512];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+}
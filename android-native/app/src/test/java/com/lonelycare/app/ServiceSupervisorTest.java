@@ -0,0 +1,72 @@
+package com.lonelycare.app;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ServiceSupervisor 재시작 예산 - 정확한 알람 권한이 있을 때만 재시작을 거절하는지 검증
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ServiceSupervisorTest {
+    // 예산(RESTART_BUDGET) 안의 시스템 재시작 수 (서비스 이름은 테스트마다 달리 해 기록이 섞이지 않게)
+    private static final int BUDGET = 4;
+
+    private ServiceSupervisor supervisor;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        supervisor = new ServiceSupervisor(context);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowAlarmManager.setCanScheduleExactAlarms(true);
+    }
+
+    @Test
+    public void refusesRestartStormWhenExactAlarmAllowed() {
+        ShadowAlarmManager.setCanScheduleExactAlarms(true);
+        String name = "storm_exact";
+
+        assertTrue(supervisor.admit(name, false));
+        for (int i = 0; i < BUDGET; i++) {
+            assertTrue(supervisor.admit(name, true));
+        }
+
+        // 예산 초과 - 거절하고 백오프 알람으로 다시 시작
+        assertFalse(supervisor.admit(name, true));
+        // 거절 뒤의 재시작은 정상 종료 후 시작처럼 보이므로 다시 예산 안
+        assertTrue(supervisor.admit(name, false));
+    }
+
+    @Test
+    public void admitsRestartStormWhenExactAlarmDenied() {
+        // Android 14 기본값 - SCHEDULE_EXACT_ALARM 거부
+        ShadowAlarmManager.setCanScheduleExactAlarms(false);
+        String name = "storm_inexact";
+
+        assertTrue(supervisor.admit(name, false));
+        for (int i = 0; i < BUDGET; i++) {
+            assertTrue(supervisor.admit(name, true));
+        }
+
+        // 비정확 알람에서는 포그라운드 서비스를 다시 시작할 수 없으므로 거절하지 않음
+        for (int i = 0; i < BUDGET; i++) {
+            assertTrue(supervisor.admit(name, true));
+        }
+    }
+}